@@ -17,6 +17,16 @@ repositories {
 dependencies {
     compileOnly(libs.jetbrains.annotations)
     compileOnly(libs.jspecify)
+
+    testImplementation(platform(libs.junit.bom))
+    testImplementation(libs.junit.jupiter)
+    testImplementation(libs.mockito.core)
+    testRuntimeOnly(libs.junit.platform.launcher)
+}
+
+// the server jar is compileOnly, tests still need the hytale types on their classpath
+configurations.testImplementation {
+    extendsFrom(configurations.compileOnly.get())
 }
 
 hytale {
@@ -64,6 +74,10 @@ tasks.named<ProcessResources>("processResources") {
     inputs.properties(replaceProperties)
 }
 
+tasks.named<Test>("test") {
+    useJUnitPlatform()
+}
+
 tasks.withType<Jar> {
     manifest {
         attributes["Specification-Title"] = rootProject.name
@@ -1,25 +1,42 @@
 package com.chocolate.machine;
 
 import com.chocolate.machine.command.ChocolateCommand;
+import com.chocolate.machine.config.MachineConfig;
+import com.chocolate.machine.dungeon.DungeonBlockTypes;
+import com.chocolate.machine.dungeon.DungeonChunkListener;
 import com.chocolate.machine.dungeon.DungeonModule;
 import com.chocolate.machine.dungeon.system.DungeonAreaSystem;
+import com.chocolate.machine.dungeon.system.DungeonBlockChangeSystem;
 import com.chocolate.machine.dungeon.system.DungeonBossRoomSystem;
+import com.chocolate.machine.dungeon.system.DungeonChunkUnloadSystem;
+import com.chocolate.machine.dungeon.system.DungeonEntranceRegistrySystem;
+import com.chocolate.machine.dungeon.system.DungeonIndexSystem;
+import com.chocolate.machine.dungeon.system.DungeonNetworkSystem;
 import com.chocolate.machine.dungeon.system.DungeoneerCleanupSystem;
 import com.chocolate.machine.dungeon.system.DungeoneerRespawnRestoreSystem;
 import com.chocolate.machine.dungeon.system.DungeonTickSystem;
+import com.chocolate.machine.dungeon.system.DungeonRegistrationJobSystem;
 import com.chocolate.machine.dungeon.system.DungeonRegistrationSystem;
+import com.chocolate.machine.dungeon.system.SpawnerActionSystem;
+import com.hypixel.hytale.assetstore.event.LoadedAssetsEvent;
+import com.hypixel.hytale.assetstore.event.RemovedAssetsEvent;
 import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
 import com.hypixel.hytale.server.core.plugin.JavaPlugin;
 import com.hypixel.hytale.server.core.plugin.JavaPluginInit;
+import com.hypixel.hytale.server.core.universe.world.events.ChunkPreLoadProcessEvent;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import com.hypixel.hytale.server.core.util.Config;
 
 public class Machine extends JavaPlugin {
     private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
 
+    private final Config<MachineConfig> config;
     private DungeonModule dungeonModule;
 
     public Machine(JavaPluginInit init) {
         super(init);
+        this.config = this.withConfig("Machine", MachineConfig.CODEC);
         LOGGER.atInfo().log("Chocolate Machine plugin initializing (version %s)...",
                 this.getManifest().getVersion().toString());
     }
@@ -28,19 +45,31 @@ public class Machine extends JavaPlugin {
     protected void setup() {
         LOGGER.atInfo().log("Setting up Chocolate Machine...");
 
-        dungeonModule = new DungeonModule();
+        dungeonModule = new DungeonModule(config.get());
         EntityStore.REGISTRY.registerSystem(dungeonModule);
 
         registerDungeonSystems();
 
+        registerEventListeners();
+
         setupCommands();
 
         LOGGER.atInfo().log("Chocolate Machine setup complete!");
     }
 
     private void registerDungeonSystems() {
+        getEntityStoreRegistry().registerSystem(new DungeonNetworkSystem.Spawners());
+        getEntityStoreRegistry().registerSystem(new DungeonNetworkSystem.Entrances());
+        getEntityStoreRegistry().registerSystem(new DungeonNetworkSystem.Dungeons());
+
+        getEntityStoreRegistry().registerSystem(new DungeonIndexSystem());
+
+        getEntityStoreRegistry().registerSystem(new DungeonEntranceRegistrySystem());
+
         getEntityStoreRegistry().registerSystem(new DungeonRegistrationSystem());
 
+        getEntityStoreRegistry().registerSystem(new DungeonRegistrationJobSystem());
+
         getEntityStoreRegistry().registerSystem(new DungeonBossRoomSystem());
 
         getEntityStoreRegistry().registerSystem(new DungeonAreaSystem());
@@ -50,6 +79,28 @@ public class Machine extends JavaPlugin {
         getEntityStoreRegistry().registerSystem(new DungeoneerRespawnRestoreSystem());
 
         getEntityStoreRegistry().registerSystem(new DungeonTickSystem());
+        getEntityStoreRegistry().registerSystem(new SpawnerActionSystem.Hammers());
+        getEntityStoreRegistry().registerSystem(new SpawnerActionSystem.SawBlades());
+        getEntityStoreRegistry().registerSystem(new SpawnerActionSystem.Presses());
+        getEntityStoreRegistry().registerSystem(new SpawnerActionSystem.Beams());
+        getEntityStoreRegistry().registerSystem(new SpawnerActionSystem.Lasers());
+        getEntityStoreRegistry().registerSystem(new SpawnerActionSystem.Skeletons());
+
+        getEntityStoreRegistry().registerSystem(new DungeonBlockChangeSystem.Place());
+        getEntityStoreRegistry().registerSystem(new DungeonBlockChangeSystem.Break());
+
+        getChunkStoreRegistry().registerSystem(new DungeonChunkUnloadSystem());
+    }
+
+    private void registerEventListeners() {
+        // CM_ block type lookup is keyed by block type index, which shifts when block assets change
+        getEventRegistry().register(LoadedAssetsEvent.class, BlockType.class,
+                event -> DungeonBlockTypes.getInstance().invalidate());
+        getEventRegistry().register(RemovedAssetsEvent.class, BlockType.class,
+                event -> DungeonBlockTypes.getInstance().invalidate());
+
+        DungeonChunkListener chunkListener = new DungeonChunkListener();
+        getEventRegistry().registerGlobal(ChunkPreLoadProcessEvent.class, chunkListener::onChunkLoad);
     }
 
     private void setupCommands() {
@@ -4,6 +4,7 @@ import javax.annotation.Nonnull;
 
 import com.chocolate.machine.dungeon.component.DungeonComponent;
 import com.chocolate.machine.dungeon.component.DungeoneerComponent;
+import com.chocolate.machine.utils.DungeonFinder;
 import com.hypixel.hytale.component.Ref;
 import com.hypixel.hytale.component.Store;
 import com.hypixel.hytale.math.vector.Vector3d;
@@ -50,8 +51,8 @@ public class ChocolateSelfCommand extends AbstractPlayerCommand {
             playerRef.sendMessage(Message.raw(String.format("Dungeon Spawn: (%.1f, %.1f, %.1f)",
                     spawnPos.getX(), spawnPos.getY(), spawnPos.getZ())));
 
-            Ref<EntityStore> dungeonRef = dungeoneer.getDungeonRef();
-            if (dungeonRef != null && dungeonRef.isValid()) {
+            Ref<EntityStore> dungeonRef = DungeonFinder.resolveDungeon(dungeoneer, store);
+            if (dungeonRef != null) {
                 DungeonComponent dungeon = store.getComponent(dungeonRef, DungeonComponent.getComponentType());
                 if (dungeon != null) {
                     playerRef.sendMessage(Message.raw("Dungeon Active: " + (dungeon.isActive() ? "Yes" : "No")));
@@ -1,7 +1,6 @@
 package com.chocolate.machine.command;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 import javax.annotation.Nonnull;
@@ -10,7 +9,6 @@ import com.chocolate.machine.dungeon.DungeonModule;
 import com.chocolate.machine.dungeon.component.DungeonComponent;
 import com.chocolate.machine.dungeon.component.SpawnerComponent;
 import com.chocolate.machine.utils.DungeonFinder;
-import com.chocolate.machine.utils.EntityFloodFill;
 import com.hypixel.hytale.component.Ref;
 import com.hypixel.hytale.component.Store;
 import com.hypixel.hytale.logger.HytaleLogger;
@@ -28,6 +26,9 @@ public class DungeonInfoCommand extends AbstractPlayerCommand {
 
     private static final double SEARCH_RADIUS = 50.0;
 
+    private static final ThreadLocal<ObjectArrayList<Ref<EntityStore>>> SPAWNER_BUFFER = ThreadLocal
+            .withInitial(ObjectArrayList::new);
+
     public DungeonInfoCommand() {
         super("info", "Show dungeon and spawner information at your location");
     }
@@ -42,11 +43,19 @@ public class DungeonInfoCommand extends AbstractPlayerCommand {
             return;
         }
 
-        ObjectArrayList<Ref<EntityStore>> spawners = new ObjectArrayList<>();
-        List<Ref<EntityStore>> entities = EntityFloodFill.floodFillSpawners(ref, store,
-                SpawnerComponent.getComponentType());
+        ObjectArrayList<Ref<EntityStore>> spawners = SPAWNER_BUFFER.get();
+        spawners.clear();
+        try {
+            DungeonFinder.findNetworkSpawners(ref, store, spawners);
+            showInfo(spawners, store, ref, playerRef);
+        } finally {
+            // don't keep refs alive on the thread between invocations
+            spawners.clear();
+        }
+    }
 
-        spawners.addAll(entities);
+    private void showInfo(@Nonnull ObjectArrayList<Ref<EntityStore>> spawners, @Nonnull Store<EntityStore> store,
+            @Nonnull Ref<EntityStore> ref, @Nonnull PlayerRef playerRef) {
 
         playerRef.sendMessage(Message.raw("=== Dungeon Info ==="));
         playerRef
@@ -8,9 +8,7 @@ import com.chocolate.machine.dungeon.DungeonModule;
 import com.chocolate.machine.dungeon.DungeonService;
 import com.chocolate.machine.dungeon.component.DungeonComponent;
 import com.chocolate.machine.dungeon.component.DungeoneerComponent;
-import com.chocolate.machine.dungeon.component.SpawnerComponent;
 import com.chocolate.machine.utils.DungeonFinder;
-import com.chocolate.machine.utils.EntityFloodFill;
 import com.hypixel.hytale.component.Ref;
 import com.hypixel.hytale.component.Store;
 import com.hypixel.hytale.math.vector.Vector3d;
@@ -26,6 +24,8 @@ import com.hypixel.hytale.server.core.universe.PlayerRef;
 import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
 public class DungeonToggleCommand extends AbstractPlayerCommand {
 
     private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
@@ -131,7 +131,7 @@ public class DungeonToggleCommand extends AbstractPlayerCommand {
             dungeoneer.setSpawnPosition(spawnPosition);
         }
 
-        dungeoneer.setDungeonRef(dungeonRef);
+        DungeonFinder.bindDungeoneer(playerEntityRef, dungeoneer, dungeonRef, store);
         dungeoneer.setRelicHolder(true);
 
         Player player = store.getComponent(playerEntityRef, Player.getComponentType());
@@ -189,10 +189,10 @@ public class DungeonToggleCommand extends AbstractPlayerCommand {
     private Ref<EntityStore> assembleNewDungeon(Store<EntityStore> store, Ref<EntityStore> playerEntityRef,
             DungeonService dungeonService, PlayerRef playerRef, World world) {
 
-        List<Ref<EntityStore>> spawners = EntityFloodFill.floodFillSpawners(
+        List<Ref<EntityStore>> spawners = DungeonFinder.findNetworkSpawners(
                 playerEntityRef,
                 store,
-                SpawnerComponent.getComponentType());
+                new ObjectArrayList<>());
 
         if (spawners.isEmpty()) {
             return null;
@@ -69,7 +69,7 @@ public class DungeonTriggerCommand extends AbstractPlayerCommand {
                 spawnPosition = new Vector3d(0, 0, 0);
             }
             existingDungeoneer = new DungeoneerComponent(dungeonId, spawnPosition);
-            existingDungeoneer.setDungeonRef(dungeonRef);
+            DungeonFinder.bindDungeoneer(playerEntityRef, existingDungeoneer, dungeonRef, store);
             store.addComponent(playerEntityRef, DungeoneerComponent.getComponentType(), existingDungeoneer);
             dungeon.addDungeoneerRef(playerEntityRef);
             playerRef.sendMessage(Message.raw("Added as dungeoneer to '" + dungeonId + "'"));
@@ -93,7 +93,7 @@ public class DungeonTriggerCommand extends AbstractPlayerCommand {
             DungeoneerComponent dungeoneer, DungeonService dungeonService, Store<EntityStore> store) {
 
         String dungeonId = dungeoneer.getDungeonId();
-        Ref<EntityStore> dungeonRef = dungeoneer.getDungeonRef();
+        Ref<EntityStore> dungeonRef = DungeonFinder.resolveDungeon(dungeoneer, store);
 
         playerRef.sendMessage(Message.raw("Simulating escape from dungeon '" + dungeonId + "'..."));
 
@@ -1,11 +1,9 @@
 package com.chocolate.machine.command;
 
-import java.util.List;
-
 import javax.annotation.Nonnull;
 
 import com.chocolate.machine.dungeon.component.SpawnerComponent;
-import com.chocolate.machine.utils.EntityFloodFill;
+import com.chocolate.machine.utils.DungeonFinder;
 import com.hypixel.hytale.component.Ref;
 import com.hypixel.hytale.component.Store;
 import com.hypixel.hytale.server.core.Message;
@@ -16,8 +14,13 @@ import com.hypixel.hytale.server.core.universe.PlayerRef;
 import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
 public class TrapListCommand extends AbstractPlayerCommand {
 
+    private static final ThreadLocal<ObjectArrayList<Ref<EntityStore>>> SPAWNER_BUFFER = ThreadLocal
+            .withInitial(ObjectArrayList::new);
+
     public TrapListCommand() {
         super("list", "List all Trap locations found via flood-fill");
         this.addAliases("ls", "traps");
@@ -27,10 +30,19 @@ public class TrapListCommand extends AbstractPlayerCommand {
     public void execute(@Nonnull CommandContext context, @Nonnull Store<EntityStore> store,
             @Nonnull Ref<EntityStore> playerEntityRef, @Nonnull PlayerRef playerRef, @Nonnull World world) {
 
-        List<Ref<EntityStore>> spawners = EntityFloodFill.floodFillSpawners(
-                playerEntityRef,
-                store,
-                SpawnerComponent.getComponentType());
+        ObjectArrayList<Ref<EntityStore>> spawners = SPAWNER_BUFFER.get();
+        spawners.clear();
+        try {
+            DungeonFinder.findNetworkSpawners(playerEntityRef, store, spawners);
+            listSpawners(spawners, store, playerRef);
+        } finally {
+            // don't keep refs alive on the thread between invocations
+            spawners.clear();
+        }
+    }
+
+    private void listSpawners(@Nonnull ObjectArrayList<Ref<EntityStore>> spawners,
+            @Nonnull Store<EntityStore> store, @Nonnull PlayerRef playerRef) {
 
         if (spawners.isEmpty()) {
             playerRef.sendMessage(Message.raw("No Traps found within flood-fill radius."));
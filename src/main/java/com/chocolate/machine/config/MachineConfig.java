@@ -0,0 +1,141 @@
+package com.chocolate.machine.config;
+
+import com.hypixel.hytale.codec.Codec;
+import com.hypixel.hytale.codec.KeyedCodec;
+import com.hypixel.hytale.codec.builder.BuilderCodec;
+
+// plugin settings, loaded from the plugin's config file
+public class MachineConfig {
+
+    public static final BuilderCodec<MachineConfig> CODEC = BuilderCodec
+            .builder(MachineConfig.class, MachineConfig::new)
+            .append(new KeyedCodec<>("BlockScanParallelism", Codec.INTEGER),
+                    (c, v) -> c.blockScanParallelism = v,
+                    c -> c.blockScanParallelism)
+            .add()
+            .append(new KeyedCodec<>("RegistrationBudgetMicros", Codec.INTEGER),
+                    (c, v) -> c.registrationBudgetMicros = v,
+                    c -> c.registrationBudgetMicros)
+            .add()
+            .append(new KeyedCodec<>("FootprintPadding", Codec.INTEGER),
+                    (c, v) -> c.footprintPadding = v,
+                    c -> c.footprintPadding)
+            .add()
+            .append(new KeyedCodec<>("DiscoveryMode", Codec.STRING),
+                    (c, v) -> c.discoveryMode = v,
+                    c -> c.discoveryMode)
+            .add()
+            .append(new KeyedCodec<>("ParallelDungeonTicks", Codec.BOOLEAN),
+                    (c, v) -> c.parallelDungeonTicks = v,
+                    c -> c.parallelDungeonTicks)
+            .add()
+            .append(new KeyedCodec<>("SpawnerNearRadius", Codec.DOUBLE),
+                    (c, v) -> c.spawnerNearRadius = v,
+                    c -> c.spawnerNearRadius)
+            .add()
+            .append(new KeyedCodec<>("SpawnerMidRadius", Codec.DOUBLE),
+                    (c, v) -> c.spawnerMidRadius = v,
+                    c -> c.spawnerMidRadius)
+            .add()
+            .append(new KeyedCodec<>("SpawnerMidTickInterval", Codec.INTEGER),
+                    (c, v) -> c.spawnerMidTickInterval = v,
+                    c -> c.spawnerMidTickInterval)
+            .add()
+            .build();
+
+    // worker threads for full chunk scans, 1 scans on the world thread
+    private int blockScanParallelism = 4;
+
+    // time a queued dungeon registration may use per tick
+    private int registrationBudgetMicros = 2000;
+
+    // blocks added around a dungeon's spawners and entrance when sizing its block scan
+    private int footprintPadding = 24;
+
+    // how flood fills find candidates: "Spatial" sweeps every entity in range,
+    // "Archetype" walks only the entities carrying the searched components. archetype mode needs the
+    // store itself, searches made from inside a system tick (through a command buffer) stay spatial
+    private String discoveryMode = DiscoveryMode.SPATIAL.name();
+
+    // tick each active dungeon's spawners as a separate task instead of all on the world thread
+    private boolean parallelDungeonTicks = false;
+
+    // spawners within the near radius of a dungeoneer tick every tick, those within the mid radius
+    // every spawnerMidTickInterval ticks, anything further is frozen. a mid radius at or below the
+    // near one turns the mid tier off
+    private double spawnerNearRadius = 50.0;
+    private double spawnerMidRadius = 100.0;
+    private int spawnerMidTickInterval = 4;
+
+    public enum DiscoveryMode {
+        SPATIAL,
+        ARCHETYPE
+    }
+
+    public int getBlockScanParallelism() {
+        return Math.max(1, blockScanParallelism);
+    }
+
+    public void setBlockScanParallelism(int blockScanParallelism) {
+        this.blockScanParallelism = blockScanParallelism;
+    }
+
+    public int getRegistrationBudgetMicros() {
+        return Math.max(1, registrationBudgetMicros);
+    }
+
+    public void setRegistrationBudgetMicros(int registrationBudgetMicros) {
+        this.registrationBudgetMicros = registrationBudgetMicros;
+    }
+
+    public int getFootprintPadding() {
+        return Math.max(0, footprintPadding);
+    }
+
+    public void setFootprintPadding(int footprintPadding) {
+        this.footprintPadding = footprintPadding;
+    }
+
+    public DiscoveryMode getDiscoveryMode() {
+        if (discoveryMode != null && discoveryMode.equalsIgnoreCase(DiscoveryMode.ARCHETYPE.name())) {
+            return DiscoveryMode.ARCHETYPE;
+        }
+        return DiscoveryMode.SPATIAL;
+    }
+
+    public void setDiscoveryMode(DiscoveryMode discoveryMode) {
+        this.discoveryMode = discoveryMode.name();
+    }
+
+    public boolean isParallelDungeonTicks() {
+        return parallelDungeonTicks;
+    }
+
+    public void setParallelDungeonTicks(boolean parallelDungeonTicks) {
+        this.parallelDungeonTicks = parallelDungeonTicks;
+    }
+
+    public double getSpawnerNearRadius() {
+        return Math.max(0.0, spawnerNearRadius);
+    }
+
+    public void setSpawnerNearRadius(double spawnerNearRadius) {
+        this.spawnerNearRadius = spawnerNearRadius;
+    }
+
+    public double getSpawnerMidRadius() {
+        return Math.max(getSpawnerNearRadius(), spawnerMidRadius);
+    }
+
+    public void setSpawnerMidRadius(double spawnerMidRadius) {
+        this.spawnerMidRadius = spawnerMidRadius;
+    }
+
+    public int getSpawnerMidTickInterval() {
+        return Math.max(1, spawnerMidTickInterval);
+    }
+
+    public void setSpawnerMidTickInterval(int spawnerMidTickInterval) {
+        this.spawnerMidTickInterval = spawnerMidTickInterval;
+    }
+}
@@ -0,0 +1,257 @@
+package com.chocolate.machine.dungeon;
+
+import com.chocolate.machine.utils.PackedBlockPos;
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.math.util.ChunkUtil;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.chunk.BlockChunk;
+import com.hypixel.hytale.server.core.universe.world.chunk.WorldChunk;
+import com.hypixel.hytale.server.core.universe.world.chunk.section.BlockSection;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+
+// scans loaded chunks for CM_ blocks one 32^3 section at a time.
+// sections that are all air or whose palette has no CM_ type are skipped without touching their blocks
+public class DungeonBlockScanner {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    // below this many chunks the task overhead outweighs the parallel speedup
+    private static final int MIN_PARALLEL_CHUNKS = 4;
+
+    private static ForkJoinPool pool;
+    private static int poolParallelism;
+
+    @FunctionalInterface
+    public interface BlockConsumer {
+        // baseIndex resolves through DungeonBlockTypes.getBaseId
+        void accept(int x, int y, int z, int baseIndex);
+    }
+
+    // blocks found in one chunk, in scan order
+    public static class ChunkBlocks {
+        private final long chunkIndex;
+        private final LongArrayList positions = new LongArrayList();
+        private final IntArrayList baseIndices = new IntArrayList();
+
+        ChunkBlocks(long chunkIndex) {
+            this.chunkIndex = chunkIndex;
+        }
+
+        public long getChunkIndex() {
+            return chunkIndex;
+        }
+
+        public int size() {
+            return positions.size();
+        }
+
+        public long getPosition(int i) {
+            return positions.getLong(i);
+        }
+
+        public int getBaseIndex(int i) {
+            return baseIndices.getInt(i);
+        }
+
+        public int forEach(@Nonnull BlockConsumer consumer) {
+            for (int i = 0; i < positions.size(); i++) {
+                long packed = positions.getLong(i);
+                consumer.accept(PackedBlockPos.unpackX(packed), PackedBlockPos.unpackY(packed),
+                        PackedBlockPos.unpackZ(packed), baseIndices.getInt(i));
+            }
+            return positions.size();
+        }
+    }
+
+    // inclusive bounds, returns number of blocks passed to the consumer
+    public int scan(
+            @Nonnull World world,
+            int minX, int minY, int minZ,
+            int maxX, int maxY, int maxZ,
+            int parallelism,
+            @Nonnull BlockConsumer consumer) {
+
+        List<WorldChunk> loaded = new ObjectArrayList<>();
+        for (int chunkX = ChunkUtil.chunkCoordinate(minX); chunkX <= ChunkUtil.chunkCoordinate(maxX); chunkX++) {
+            for (int chunkZ = ChunkUtil.chunkCoordinate(minZ); chunkZ <= ChunkUtil.chunkCoordinate(maxZ); chunkZ++) {
+                WorldChunk chunk = world.getChunkIfInMemory(ChunkUtil.indexChunk(chunkX, chunkZ));
+                if (chunk != null) {
+                    loaded.add(chunk);
+                }
+            }
+        }
+
+        int found = 0;
+        for (ChunkBlocks blocks : scanChunks(loaded, minX, minY, minZ, maxX, maxY, maxZ, parallelism)) {
+            found += blocks.forEach(consumer);
+        }
+        return found;
+    }
+
+    // scans each chunk clipped to the bounds. with parallelism > 1 the chunks are read on the
+    // scan pool, results always come back in input order so both paths yield identical output
+    @Nonnull
+    public List<ChunkBlocks> scanChunks(
+            @Nonnull List<WorldChunk> chunks,
+            int minX, int minY, int minZ,
+            int maxX, int maxY, int maxZ,
+            int parallelism) {
+
+        DungeonBlockTypes types = DungeonBlockTypes.getInstance();
+        List<ChunkBlocks> results = new ObjectArrayList<>(chunks.size());
+        if (chunks.isEmpty() || types.getDungeonTypeIds().isEmpty()) {
+            return results;
+        }
+
+        if (parallelism <= 1 || chunks.size() < MIN_PARALLEL_CHUNKS) {
+            for (WorldChunk chunk : chunks) {
+                results.add(scanChunk(chunk, minX, minY, minZ, maxX, maxY, maxZ, types));
+            }
+            return results;
+        }
+
+        List<Callable<ChunkBlocks>> tasks = new ObjectArrayList<>(chunks.size());
+        for (WorldChunk chunk : chunks) {
+            tasks.add(() -> scanChunk(chunk, minX, minY, minZ, maxX, maxY, maxZ, types));
+        }
+
+        try {
+            for (Future<ChunkBlocks> future : getPool(parallelism).invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Block scan interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Block scan failed", e.getCause());
+        }
+
+        return results;
+    }
+
+    // whole chunk, used to (re)build the per-chunk block index
+    @Nonnull
+    public ChunkBlocks scanChunk(@Nonnull WorldChunk chunk) {
+        int chunkMinX = chunk.getX() * ChunkUtil.SIZE;
+        int chunkMinZ = chunk.getZ() * ChunkUtil.SIZE;
+        return scanChunk(chunk,
+                chunkMinX, 0, chunkMinZ,
+                chunkMinX + ChunkUtil.SIZE - 1, ChunkUtil.HEIGHT - 1, chunkMinZ + ChunkUtil.SIZE - 1,
+                DungeonBlockTypes.getInstance());
+    }
+
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    @Nonnull
+    private static synchronized ForkJoinPool getPool(int parallelism) {
+        if (pool == null || poolParallelism != parallelism) {
+            if (pool != null) {
+                pool.shutdown();
+            }
+            pool = new ForkJoinPool(parallelism, p -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                thread.setName("Machine-BlockScan-" + thread.getPoolIndex());
+                thread.setDaemon(true);
+                return thread;
+            }, null, false);
+            poolParallelism = parallelism;
+            LOGGER.atInfo().log("Started block scan pool with parallelism %d", parallelism);
+        }
+        return pool;
+    }
+
+    // only reads the chunk, safe to run off the world thread. takes the type table so tests can
+    // scan without the asset map
+    @Nonnull
+    ChunkBlocks scanChunk(
+            @Nonnull WorldChunk chunk,
+            int minX, int minY, int minZ,
+            int maxX, int maxY, int maxZ,
+            @Nonnull DungeonBlockTypes types) {
+
+        int chunkMinX = chunk.getX() * ChunkUtil.SIZE;
+        int chunkMinZ = chunk.getZ() * ChunkUtil.SIZE;
+        int fromX = Math.max(minX, chunkMinX);
+        int toX = Math.min(maxX, chunkMinX + ChunkUtil.SIZE - 1);
+        int fromZ = Math.max(minZ, chunkMinZ);
+        int toZ = Math.min(maxZ, chunkMinZ + ChunkUtil.SIZE - 1);
+        // callers may pass open bounds, the chunk only has HEIGHT rows
+        int fromY = Math.max(minY, 0);
+        int toY = Math.min(maxY, ChunkUtil.HEIGHT - 1);
+
+        ChunkBlocks result = new ChunkBlocks(ChunkUtil.indexChunk(chunk.getX(), chunk.getZ()));
+
+        BlockChunk blockChunk = chunk.getBlockChunk();
+        if (blockChunk == null) {
+            scanColumns(chunk, fromX, fromY, fromZ, toX, toY, toZ, types, result);
+            return result;
+        }
+
+        IntList dungeonTypeIds = types.getDungeonTypeIds();
+        int minSection = fromY / ChunkUtil.SIZE;
+        int maxSection = toY / ChunkUtil.SIZE;
+
+        for (int sectionIndex = minSection; sectionIndex <= maxSection; sectionIndex++) {
+            BlockSection section = blockChunk.getSectionAtIndex(sectionIndex);
+            if (section == null || section.isSolidAir() || !section.containsAny(dungeonTypeIds)) {
+                continue;
+            }
+
+            int sectionMinY = sectionIndex * ChunkUtil.SIZE;
+            int sectionFromY = Math.max(fromY, sectionMinY);
+            int sectionToY = Math.min(toY, sectionMinY + ChunkUtil.SIZE - 1);
+
+            for (int x = fromX; x <= toX; x++) {
+                for (int z = fromZ; z <= toZ; z++) {
+                    for (int y = sectionFromY; y <= sectionToY; y++) {
+                        int baseIndex = types.getBaseIndex(section.get(ChunkUtil.indexBlock(x, y, z)));
+                        if (baseIndex != DungeonBlockTypes.NOT_DUNGEON_BLOCK) {
+                            result.positions.add(PackedBlockPos.pack(x, y, z));
+                            result.baseIndices.add(baseIndex);
+                        }
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    // fallback for chunks without section data, same per-block walk the service used to do
+    private void scanColumns(
+            @Nonnull WorldChunk chunk,
+            int minX, int minY, int minZ,
+            int maxX, int maxY, int maxZ,
+            @Nonnull DungeonBlockTypes types,
+            @Nonnull ChunkBlocks result) {
+
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                for (int y = minY; y <= maxY; y++) {
+                    int baseIndex = types.getBaseIndex(chunk.getBlock(x, y, z));
+                    if (baseIndex != DungeonBlockTypes.NOT_DUNGEON_BLOCK) {
+                        result.positions.add(PackedBlockPos.pack(x, y, z));
+                        result.baseIndices.add(baseIndex);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.chocolate.machine.dungeon;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.ints.IntLists;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Map;
+
+// block type index -> dungeon base id lookup, so scans never touch block id strings.
+// base ids are interned into a grow-only table so their indices stay stable across asset reloads
+public class DungeonBlockTypes {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+    private static final DungeonBlockTypes INSTANCE = new DungeonBlockTypes();
+
+    public static final String DUNGEON_BLOCK_PREFIX = "CM_";
+    public static final String STATE_BLOCK_PREFIX = "*" + DUNGEON_BLOCK_PREFIX;
+    public static final int NOT_DUNGEON_BLOCK = -1;
+    public static final String DEFAULT_STATE = "default";
+
+    private final Object2IntOpenHashMap<String> baseIndexById = new Object2IntOpenHashMap<>();
+    private final ObjectArrayList<String> baseIds = new ObjectArrayList<>();
+    private volatile String[] baseIdSnapshot = new String[0];
+
+    // rebuilt on asset reload, readers only ever see a complete table
+    private volatile int[] baseIndexByType = new int[0];
+    private volatile String[] baseIdByType = new String[0];
+    private volatile String[] stateByType = new String[0];
+    private volatile IntList dungeonTypeIds = IntLists.emptyList();
+    // dirty only clears once the new tables are published, so unlocked readers that see it false
+    // always read a complete table. the generation catches invalidations that land mid-rebuild
+    private volatile boolean dirty = true;
+    private volatile int generation = 0;
+
+    private DungeonBlockTypes() {
+        baseIndexById.defaultReturnValue(NOT_DUNGEON_BLOCK);
+    }
+
+    @Nonnull
+    public static DungeonBlockTypes getInstance() {
+        return INSTANCE;
+    }
+
+    public static boolean isDungeonBlock(@Nonnull String blockId) {
+        return blockId.startsWith(DUNGEON_BLOCK_PREFIX) || blockId.startsWith(STATE_BLOCK_PREFIX);
+    }
+
+    // *CM_Torch_On -> CM_Torch
+    @Nonnull
+    public static String getBaseBlockId(@Nonnull String blockId) {
+        if (blockId.startsWith("*")) {
+            // Format: *BaseId_StateName - strip leading * and trailing _StateName
+            String withoutStar = blockId.substring(1);
+            int lastUnderscore = withoutStar.lastIndexOf('_');
+            if (lastUnderscore > DUNGEON_BLOCK_PREFIX.length()) {
+                // Only strip if there's content after CM_
+                return withoutStar.substring(0, lastUnderscore);
+            }
+            return withoutStar;
+        }
+        return blockId;
+    }
+
+    // *CM_Torch_On -> On, CM_Torch -> default
+    @Nonnull
+    public static String getBlockState(@Nonnull String blockId) {
+        if (!blockId.startsWith("*")) {
+            return DEFAULT_STATE;
+        }
+        String baseId = getBaseBlockId(blockId);
+        return blockId.length() > baseId.length() + 2 ? blockId.substring(baseId.length() + 2) : DEFAULT_STATE;
+    }
+
+    // called from the asset load/remove events, the rebuild happens lazily on next use
+    public void invalidate() {
+        generation++;
+        dirty = true;
+    }
+
+    public boolean isDungeonBlock(int blockTypeIndex) {
+        return getBaseIndex(blockTypeIndex) != NOT_DUNGEON_BLOCK;
+    }
+
+    public int getBaseIndex(int blockTypeIndex) {
+        int[] table = table();
+        if (blockTypeIndex < 0 || blockTypeIndex >= table.length) {
+            return NOT_DUNGEON_BLOCK;
+        }
+        return table[blockTypeIndex];
+    }
+
+    @Nullable
+    public String getBaseIdForType(int blockTypeIndex) {
+        table();
+        String[] table = baseIdByType;
+        if (blockTypeIndex < 0 || blockTypeIndex >= table.length) {
+            return null;
+        }
+        return table[blockTypeIndex];
+    }
+
+    // interaction state a CM_/*CM_ type stands for, null for any other block
+    @Nullable
+    public String getStateForType(int blockTypeIndex) {
+        table();
+        String[] table = stateByType;
+        if (blockTypeIndex < 0 || blockTypeIndex >= table.length) {
+            return null;
+        }
+        return table[blockTypeIndex];
+    }
+
+    @Nonnull
+    public String getBaseId(int baseIndex) {
+        return baseIdSnapshot[baseIndex];
+    }
+
+    public synchronized int internBaseId(@Nonnull String baseBlockId) {
+        int index = baseIndexById.getInt(baseBlockId);
+        if (index == NOT_DUNGEON_BLOCK) {
+            index = baseIds.size();
+            baseIds.add(baseBlockId.intern());
+            baseIndexById.put(baseIds.get(index), index);
+            baseIdSnapshot = baseIds.toArray(new String[0]);
+        }
+        return index;
+    }
+
+    // block type indices of every CM_/*CM_ type, for section palette checks
+    @Nonnull
+    public IntList getDungeonTypeIds() {
+        table();
+        return dungeonTypeIds;
+    }
+
+    @Nonnull
+    private int[] table() {
+        if (dirty) {
+            rebuild();
+        }
+        return baseIndexByType;
+    }
+
+    private synchronized void rebuild() {
+        if (!dirty) {
+            return;
+        }
+        int startGeneration = generation;
+
+        Map<String, BlockType> blockTypes = BlockType.getAssetMap().getAssetMap();
+        IntArrayList typeIds = new IntArrayList();
+        IntArrayList baseIndices = new IntArrayList();
+        ObjectArrayList<String> states = new ObjectArrayList<>();
+        int maxIndex = -1;
+
+        for (String blockId : blockTypes.keySet()) {
+            if (blockId == null || !isDungeonBlock(blockId)) {
+                continue;
+            }
+
+            int index = BlockType.getAssetMap().getIndex(blockId);
+            if (index < 0) {
+                continue;
+            }
+
+            typeIds.add(index);
+            baseIndices.add(internBaseId(getBaseBlockId(blockId)));
+            states.add(getBlockState(blockId).intern());
+            maxIndex = Math.max(maxIndex, index);
+        }
+
+        int[] table = new int[maxIndex + 1];
+        String[] idTable = new String[maxIndex + 1];
+        String[] stateTable = new String[maxIndex + 1];
+        Arrays.fill(table, NOT_DUNGEON_BLOCK);
+        for (int i = 0; i < typeIds.size(); i++) {
+            table[typeIds.getInt(i)] = baseIndices.getInt(i);
+            idTable[typeIds.getInt(i)] = baseIds.get(baseIndices.getInt(i));
+            stateTable[typeIds.getInt(i)] = states.get(i);
+        }
+
+        baseIdByType = idTable;
+        stateByType = stateTable;
+        baseIndexByType = table;
+        dungeonTypeIds = IntLists.unmodifiable(typeIds);
+        if (generation == startGeneration) {
+            dirty = false;
+        }
+
+        LOGGER.atInfo().log("Indexed %d dungeon block types (%d base ids)", typeIds.size(), baseIds.size());
+    }
+}
@@ -0,0 +1,47 @@
+package com.chocolate.machine.dungeon;
+
+import com.chocolate.machine.dungeon.resource.DungeonBlockIndex;
+import com.chocolate.machine.dungeon.resource.PendingBlockStateQueue;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.chunk.WorldChunk;
+import com.hypixel.hytale.server.core.universe.world.events.ChunkPreLoadProcessEvent;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import javax.annotation.Nonnull;
+
+// keeps per-world dungeon block data in step with chunk loading
+public class DungeonChunkListener {
+
+    public void onChunkLoad(@Nonnull ChunkPreLoadProcessEvent event) {
+        WorldChunk chunk = event.getChunk();
+        if (chunk == null) {
+            return;
+        }
+
+        World world = chunk.getWorld();
+        if (world == null) {
+            return;
+        }
+
+        // defer to the world thread so the chunk is fully in memory before we read it
+        world.execute(() -> {
+            Store<EntityStore> store = world.getEntityStore().getStore();
+
+            // states from dungeon toggles that happened while this chunk was unloaded
+            if (PendingBlockStateQueue.getResourceType() != null) {
+                PendingBlockStateQueue pending = store.getResource(PendingBlockStateQueue.getResourceType());
+                if (pending != null) {
+                    pending.drainChunk(chunk);
+                }
+            }
+
+            if (DungeonBlockIndex.getResourceType() != null) {
+                DungeonBlockIndex index = store.getResource(DungeonBlockIndex.getResourceType());
+                if (index != null) {
+                    index.onChunkLoad(chunk);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,285 @@
+package com.chocolate.machine.dungeon;
+
+import com.chocolate.machine.dungeon.component.DungeonComponent;
+import com.chocolate.machine.dungeon.resource.DungeonIndex;
+import com.chocolate.machine.utils.DungeonFinder;
+import com.chocolate.machine.utils.PackedBlockPos;
+import com.hypixel.hytale.component.ComponentAccessor;
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.math.vector.Vector3d;
+import com.hypixel.hytale.server.core.modules.entity.component.TransformComponent;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.longs.LongSets;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+
+// settles every dungeon controller around a registering dungeon in one pass. controllers are clustered
+// with union-find over MERGE_RANGE, duplicates at the same spot are dropped, and every cluster member
+// without a BossRoom is folded into the nearest BossRoom controller of its cluster (or the cluster's
+// primary if there is none). two BossRooms are never merged, they are reported as a conflict instead
+final class DungeonMergePlanner {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    // a pasted multi-prefab layout is usually settled by the first of its controllers to register
+    private static final double GATHER_RADIUS = DungeonFinder.MERGE_RANGE * 4;
+
+    private static final int NONE = -1;
+
+    // BossRoom pairs already reported, by their controllers' block positions, so a conflict is logged
+    // once instead of on every registration around it
+    private static final LongSet REPORTED_CONFLICTS = LongSets.synchronize(new LongOpenHashSet());
+
+    @Nonnull
+    private final ComponentAccessor<EntityStore> store;
+
+    private final ObjectArrayList<Ref<EntityStore>> refs = new ObjectArrayList<>();
+    private final ObjectArrayList<DungeonComponent> dungeons = new ObjectArrayList<>();
+    private final ObjectArrayList<Vector3d> positions = new ObjectArrayList<>();
+    private final ObjectOpenHashSet<Ref<EntityStore>> gathered = new ObjectOpenHashSet<>();
+
+    DungeonMergePlanner(@Nonnull ComponentAccessor<EntityStore> store) {
+        this.store = store;
+    }
+
+    @Nonnull
+    DungeonService.MergeResult mergeAround(@Nonnull Ref<EntityStore> seedRef,
+            @Nonnull List<Ref<EntityStore>> nearbyDungeons) {
+
+        if (!gather(seedRef)) {
+            return new DungeonService.MergeResult(seedRef, false, false);
+        }
+        for (Ref<EntityStore> otherRef : nearbyDungeons) {
+            gather(otherRef);
+        }
+
+        DungeonIndex index = DungeonIndex.getResourceType() != null
+                ? store.getResource(DungeonIndex.getResourceType())
+                : null;
+        if (index != null) {
+            for (Ref<EntityStore> otherRef : index.findInRange(positions.get(0), GATHER_RADIUS,
+                    new ObjectArrayList<>())) {
+                gather(otherRef);
+            }
+        }
+
+        int count = refs.size();
+        if (count == 1) {
+            return new DungeonService.MergeResult(seedRef, false, false);
+        }
+
+        double mergeRangeSq = DungeonFinder.MERGE_RANGE * DungeonFinder.MERGE_RANGE;
+        int[] parent = new int[count];
+        for (int i = 0; i < count; i++) {
+            parent[i] = i;
+        }
+        for (int i = 0; i < count; i++) {
+            for (int j = i + 1; j < count; j++) {
+                if (positions.get(i).distanceSquaredTo(positions.get(j)) <= mergeRangeSq) {
+                    union(parent, i, j);
+                }
+            }
+        }
+
+        // duplicate pastes: exact same position means duplicate entity, the registered or older one stays
+        int[] keptAs = new int[count];
+        for (int i = 0; i < count; i++) {
+            keptAs[i] = NONE;
+        }
+        for (int i = 1; i < count; i++) {
+            for (int j = 0; j < i; j++) {
+                if (keptAs[j] != NONE || positions.get(i).distanceSquaredTo(positions.get(j)) >= 1.0) {
+                    continue;
+                }
+                int kept = dungeons.get(i).isRegistered() && !dungeons.get(j).isRegistered() ? i : j;
+                int removed = kept == i ? j : i;
+                if (dungeons.get(kept).isRegistered()) {
+                    LOGGER.atInfo().log("[DungeonService] Duplicate dungeon detected at same position, removing newer entity");
+                } else {
+                    LOGGER.atInfo().log("[DungeonService] Duplicate dungeon detected at same position, removing duplicate");
+                }
+                removeDungeon(removed);
+                keptAs[removed] = kept;
+                if (removed == i) {
+                    break;
+                }
+            }
+        }
+
+        // BossRooms within merge range of each other - actual conflict
+        boolean[] conflict = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            if (keptAs[i] != NONE || !hasBossRoom(i)) continue;
+            for (int j = i + 1; j < count; j++) {
+                if (keptAs[j] != NONE || !hasBossRoom(j)
+                        || positions.get(i).distanceSquaredTo(positions.get(j)) > mergeRangeSq) {
+                    continue;
+                }
+                conflict[find(parent, i)] = true;
+                Vector3d first = positions.get(i);
+                Vector3d second = positions.get(j);
+                if (!REPORTED_CONFLICTS.add(conflictKey(first, second))) {
+                    continue;
+                }
+                LOGGER.atWarning().log(
+                        "[DungeonService] Two BossRooms within %.0f blocks! " +
+                        "BossRoom 1 '%s' at (%.1f, %.1f, %.1f), " +
+                        "BossRoom 2 '%s' at (%.1f, %.1f, %.1f). " +
+                        "These dungeons will NOT be merged - fix the prefab placement!",
+                        DungeonFinder.MERGE_RANGE,
+                        dungeons.get(i).getDungeonId(),
+                        first.getX(), first.getY(), first.getZ(),
+                        dungeons.get(j).getDungeonId(),
+                        second.getX(), second.getY(), second.getZ());
+            }
+        }
+
+        int[] target = new int[count];
+        for (int i = 0; i < count; i++) {
+            target[i] = keptAs[i] != NONE ? NONE : pickTarget(i, parent, keptAs);
+        }
+
+        // apply every merge of every cluster at once
+        for (int i = 0; i < count; i++) {
+            if (target[i] != NONE && target[i] != i) {
+                mergeInto(i, target[i]);
+            }
+        }
+
+        int seedRoot = find(parent, 0);
+        int clusterSize = 0;
+        for (int i = 0; i < count; i++) {
+            if (find(parent, i) == seedRoot) {
+                clusterSize++;
+            }
+        }
+        int seedPrimary = 0;
+        while (keptAs[seedPrimary] != NONE) {
+            seedPrimary = keptAs[seedPrimary];
+        }
+        seedPrimary = target[seedPrimary];
+        boolean hasConflict = conflict[seedRoot];
+        return new DungeonService.MergeResult(refs.get(seedPrimary), clusterSize > 1 && !hasConflict, hasConflict);
+    }
+
+    private boolean gather(@Nonnull Ref<EntityStore> ref) {
+        if (!ref.isValid() || !gathered.add(ref)) {
+            return false;
+        }
+        DungeonComponent dungeon = store.getComponent(ref, DungeonComponent.getComponentType());
+        if (dungeon == null) {
+            return false;
+        }
+        TransformComponent transform = store.getComponent(ref, TransformComponent.getComponentType());
+        refs.add(ref);
+        dungeons.add(dungeon);
+        positions.add(transform != null ? transform.getPosition() : new Vector3d(0, 0, 0));
+        return true;
+    }
+
+    // the same for either order of the pair
+    private static long conflictKey(@Nonnull Vector3d first, @Nonnull Vector3d second) {
+        long a = blockKey(first);
+        long b = blockKey(second);
+        long low = Math.min(a, b);
+        long high = Math.max(a, b);
+        long hash = (low * 0x9E3779B97F4A7C15L) ^ high;
+        return hash ^ (hash >>> 31);
+    }
+
+    private static long blockKey(@Nonnull Vector3d position) {
+        return PackedBlockPos.pack((int) Math.floor(position.getX()), (int) Math.floor(position.getY()),
+                (int) Math.floor(position.getZ()));
+    }
+
+    private boolean hasBossRoom(int node) {
+        return !dungeons.get(node).getDungeonId().isEmpty();
+    }
+
+    // BossRooms keep themselves, everyone else goes to the nearest BossRoom of the cluster.
+    // clusters without one collapse into the seed, or the first registered controller, or the first one
+    private int pickTarget(int node, @Nonnull int[] parent, @Nonnull int[] keptAs) {
+        if (hasBossRoom(node)) {
+            return node;
+        }
+
+        int root = find(parent, node);
+        int nearestBoss = NONE;
+        double nearestDistance = Double.MAX_VALUE;
+        int fallback = NONE;
+        for (int i = 0; i < refs.size(); i++) {
+            if (keptAs[i] != NONE || find(parent, i) != root) continue;
+            if (hasBossRoom(i)) {
+                double distance = positions.get(node).distanceSquaredTo(positions.get(i));
+                if (distance < nearestDistance) {
+                    nearestDistance = distance;
+                    nearestBoss = i;
+                }
+            } else if (fallback != 0 && (i == 0 || fallback == NONE
+                    || dungeons.get(i).isRegistered() && !dungeons.get(fallback).isRegistered())) {
+                fallback = i;
+            }
+        }
+        return nearestBoss != NONE ? nearestBoss : fallback;
+    }
+
+    private void mergeInto(int secondary, int primary) {
+        DungeonComponent secondaryDungeon = dungeons.get(secondary);
+        DungeonComponent primaryDungeon = dungeons.get(primary);
+        Vector3d secondaryPosition = positions.get(secondary);
+
+        LOGGER.atInfo().log("[DungeonService] Merging dungeon at (%.1f, %.1f, %.1f) into '%s'",
+                secondaryPosition.getX(), secondaryPosition.getY(), secondaryPosition.getZ(),
+                primaryDungeon.getDungeonId().isEmpty() ? "(unnamed)" : primaryDungeon.getDungeonId());
+
+        int spawnersMerged = secondaryDungeon.getSpawnerCount();
+        for (Ref<EntityStore> spawnerRef : secondaryDungeon.getSpawnerRefs()) {
+            if (spawnerRef.isValid()) {
+                primaryDungeon.addSpawnerRef(spawnerRef);
+            }
+        }
+
+        // Copy entrance ref if secondary has one and primary doesn't
+        if (primaryDungeon.getEntranceRef() == null && secondaryDungeon.getEntranceRef() != null) {
+            primaryDungeon.setEntranceRef(secondaryDungeon.getEntranceRef());
+        }
+
+        removeDungeon(secondary);
+
+        LOGGER.atInfo().log("[DungeonService] Merged %d spawners, removed secondary DungeonComponent",
+                spawnersMerged);
+    }
+
+    // Clear refs so onEntityRemove doesn't clean up spawners or pending block states that now belong to the primary
+    private void removeDungeon(int node) {
+        DungeonComponent dungeon = dungeons.get(node);
+        dungeon.clearSpawnerRefs();
+        dungeon.clearDungeonBlocks();
+        dungeon.clearDungeoneerRefs();
+        dungeon.setEntranceRef(null);
+        store.removeComponent(refs.get(node), DungeonComponent.getComponentType());
+    }
+
+    private static int find(@Nonnull int[] parent, int node) {
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]];
+            node = parent[node];
+        }
+        return node;
+    }
+
+    private static void union(@Nonnull int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA != rootB) {
+            parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+        }
+    }
+}
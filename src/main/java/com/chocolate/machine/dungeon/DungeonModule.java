@@ -1,5 +1,6 @@
 package com.chocolate.machine.dungeon;
 
+import com.chocolate.machine.config.MachineConfig;
 import com.chocolate.machine.dungeon.component.DungeonComponent;
 import com.chocolate.machine.dungeon.component.DungeonEntranceComponent;
 import com.chocolate.machine.dungeon.component.DungeoneerComponent;
@@ -11,6 +12,12 @@ import com.chocolate.machine.dungeon.component.actions.LaserBeamComponent;
 import com.chocolate.machine.dungeon.component.actions.LaserTrapActionComponent;
 import com.chocolate.machine.dungeon.component.actions.SawBladeComponent;
 import com.chocolate.machine.dungeon.component.actions.SkeletonActionComponent;
+import com.chocolate.machine.dungeon.resource.DungeonBlockIndex;
+import com.chocolate.machine.dungeon.resource.DungeonEntranceRegistry;
+import com.chocolate.machine.dungeon.resource.DungeonIndex;
+import com.chocolate.machine.dungeon.resource.DungeonNetworkGraph;
+import com.chocolate.machine.dungeon.resource.DungeonRegistrationQueue;
+import com.chocolate.machine.dungeon.resource.PendingBlockStateQueue;
 import com.chocolate.machine.dungeon.spawnable.SpawnableRegistry;
 import com.chocolate.machine.dungeon.spawnable.actions.ArcherAction;
 import com.chocolate.machine.dungeon.spawnable.actions.HammerTrap;
@@ -38,6 +45,7 @@ public class DungeonModule extends System<EntityStore> {
 
     private static DungeonModule instance;
 
+    private final MachineConfig config;
     private final DungeonService dungeonService;
 
     private ComponentType<EntityStore, DungeonComponent> dungeonComponentType;
@@ -55,10 +63,17 @@ public class DungeonModule extends System<EntityStore> {
     private ComponentType<EntityStore, SpawnedEntityComponent> spawnedEntityComponentType;
 
     private ResourceType<EntityStore, DungeonBossRoomSystem.PendingDungeoneerResource> pendingDungeoneerResourceType;
-
-    public DungeonModule() {
+    private ResourceType<EntityStore, DungeonBlockIndex> dungeonBlockIndexType;
+    private ResourceType<EntityStore, DungeonRegistrationQueue> registrationQueueType;
+    private ResourceType<EntityStore, PendingBlockStateQueue> pendingBlockStateQueueType;
+    private ResourceType<EntityStore, DungeonNetworkGraph> networkGraphType;
+    private ResourceType<EntityStore, DungeonIndex> dungeonIndexType;
+    private ResourceType<EntityStore, DungeonEntranceRegistry> entranceRegistryType;
+
+    public DungeonModule(@Nonnull MachineConfig config) {
         instance = this;
-        this.dungeonService = new DungeonService();
+        this.config = config;
+        this.dungeonService = new DungeonService(config);
     }
 
     public static DungeonModule get() {
@@ -90,6 +105,24 @@ public class DungeonModule extends System<EntityStore> {
                 DungeonBossRoomSystem.PendingDungeoneerResource::new);
         DungeonBossRoomSystem.setPendingResourceType(pendingDungeoneerResourceType);
 
+        dungeonBlockIndexType = registerResource(DungeonBlockIndex.class, DungeonBlockIndex::new);
+        DungeonBlockIndex.setResourceType(dungeonBlockIndexType);
+
+        registrationQueueType = registerResource(DungeonRegistrationQueue.class, DungeonRegistrationQueue::new);
+        DungeonRegistrationQueue.setResourceType(registrationQueueType);
+
+        pendingBlockStateQueueType = registerResource(PendingBlockStateQueue.class, PendingBlockStateQueue::new);
+        PendingBlockStateQueue.setResourceType(pendingBlockStateQueueType);
+
+        networkGraphType = registerResource(DungeonNetworkGraph.class, DungeonNetworkGraph::new);
+        DungeonNetworkGraph.setResourceType(networkGraphType);
+
+        dungeonIndexType = registerResource(DungeonIndex.class, DungeonIndex::new);
+        DungeonIndex.setResourceType(dungeonIndexType);
+
+        entranceRegistryType = registerResource(DungeonEntranceRegistry.class, DungeonEntranceRegistry::new);
+        DungeonEntranceRegistry.setResourceType(entranceRegistryType);
+
         Interaction.CODEC.register("CM_PedestalTrigger", PedestalTriggerInteraction.class, PedestalTriggerInteraction.CODEC);
         Interaction.CODEC.register("CM_PedestalBlock", PedestalBlockInteraction.class, PedestalBlockInteraction.CODEC);
 
@@ -102,6 +135,7 @@ public class DungeonModule extends System<EntityStore> {
     public void onSystemUnregistered() {
         LOGGER.atInfo().log("Unregistering dungeon module...");
         SpawnableRegistry.getInstance().clear();
+        DungeonBlockScanner.shutdown();
     }
 
     private void registerDefaultSpawnables() {
@@ -140,6 +174,11 @@ public class DungeonModule extends System<EntityStore> {
         LOGGER.atInfo().log("Registered %d default spawnables", registry.getRegisteredIds().size());
     }
 
+    @Nonnull
+    public MachineConfig getConfig() {
+        return config;
+    }
+
     @Nonnull
     public DungeonService getDungeonService() {
         return dungeonService;
@@ -0,0 +1,131 @@
+package com.chocolate.machine.dungeon;
+
+import com.chocolate.machine.dungeon.component.DungeonComponent;
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.math.vector.Vector3d;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+
+// resumable state of one dungeon registration, advanced by DungeonService.advanceRegistration
+public class DungeonRegistrationJob {
+
+    public enum Stage {
+        DISCOVER,
+        MERGE,
+        SPAWNERS,
+        ENTRANCE,
+        BLOCKS,
+        DONE
+    }
+
+    @Nonnull
+    private final Ref<EntityStore> dungeonRef;
+    @Nullable
+    private final World world;
+    @Nonnull
+    private final Vector3d origin;
+    private Stage stage = Stage.DISCOVER;
+
+    // dungeon controllers found by discovery, checked for merge range one at a time
+    @Nullable
+    List<Ref<EntityStore>> dungeons;
+    int dungeonCursor;
+    @Nullable
+    List<Ref<EntityStore>> nearbyDungeons;
+
+    // spawners found by discovery, registered one at a time
+    @Nullable
+    List<Ref<EntityStore>> spawners;
+    int spawnerCursor;
+    int spawnerCount;
+
+    // entrances attached to the spawner network, consumed by the entrance stage
+    @Nullable
+    List<Ref<EntityStore>> entrances;
+
+    // box around the spawners and entrance seen so far, shapes the block scan bounds
+    private boolean hasFootprintPoints;
+    int footprintMinX, footprintMinY, footprintMinZ;
+    int footprintMaxX, footprintMaxY, footprintMaxZ;
+
+    // chunk columns covering the block scan bounds, collected in batches
+    @Nullable
+    LongArrayList chunkColumns;
+    int chunkCursor;
+    int blockCount;
+    // block index region version when the scan started, saved with the scan result
+    long blockVersion = DungeonComponent.NO_BLOCK_VERSION;
+    int minX, minY, minZ;
+    int maxX, maxY, maxZ;
+
+    DungeonRegistrationJob(@Nonnull Ref<EntityStore> dungeonRef, @Nullable World world, @Nonnull Vector3d origin) {
+        this.dungeonRef = dungeonRef;
+        this.world = world;
+        this.origin = origin.clone();
+    }
+
+    @Nonnull
+    public Ref<EntityStore> getDungeonRef() {
+        return dungeonRef;
+    }
+
+    @Nullable
+    public World getWorld() {
+        return world;
+    }
+
+    @Nonnull
+    public Vector3d getOrigin() {
+        return origin;
+    }
+
+    @Nonnull
+    public Stage getStage() {
+        return stage;
+    }
+
+    void setStage(@Nonnull Stage stage) {
+        this.stage = stage;
+    }
+
+    void includeInFootprint(@Nonnull Vector3d position) {
+        int x = (int) Math.floor(position.getX());
+        int y = (int) Math.floor(position.getY());
+        int z = (int) Math.floor(position.getZ());
+        if (!hasFootprintPoints) {
+            hasFootprintPoints = true;
+            footprintMinX = footprintMaxX = x;
+            footprintMinY = footprintMaxY = y;
+            footprintMinZ = footprintMaxZ = z;
+            return;
+        }
+        footprintMinX = Math.min(footprintMinX, x);
+        footprintMinY = Math.min(footprintMinY, y);
+        footprintMinZ = Math.min(footprintMinZ, z);
+        footprintMaxX = Math.max(footprintMaxX, x);
+        footprintMaxY = Math.max(footprintMaxY, y);
+        footprintMaxZ = Math.max(footprintMaxZ, z);
+    }
+
+    boolean hasFootprintPoints() {
+        return hasFootprintPoints;
+    }
+
+    public boolean isDone() {
+        return stage == Stage.DONE;
+    }
+
+    public int getSpawnerCount() {
+        return spawnerCount;
+    }
+
+    public int getBlockCount() {
+        return blockCount;
+    }
+}
@@ -1,16 +1,25 @@
 package com.chocolate.machine.dungeon;
 
+import com.chocolate.machine.config.MachineConfig;
 import com.chocolate.machine.dungeon.component.DungeonBlockEntry;
+import com.chocolate.machine.dungeon.component.DungeonBlockSet;
 import com.chocolate.machine.dungeon.component.DungeonComponent;
 import com.chocolate.machine.dungeon.component.DungeoneerComponent;
 import com.chocolate.machine.dungeon.component.DungeonEntranceComponent;
 import com.chocolate.machine.dungeon.component.SpawnerComponent;
+import com.chocolate.machine.dungeon.resource.DungeonBlockIndex;
+import com.chocolate.machine.dungeon.resource.DungeonEntranceRegistry;
+import com.chocolate.machine.dungeon.resource.DungeonNetworkGraph;
+import com.chocolate.machine.dungeon.resource.DungeonRegistrationQueue;
+import com.chocolate.machine.dungeon.resource.PendingBlockStateQueue;
 import com.chocolate.machine.dungeon.spawnable.Spawnable;
 import com.chocolate.machine.dungeon.spawnable.SpawnableRegistry;
 import com.chocolate.machine.utils.DungeonFinder;
 import com.chocolate.machine.utils.EntityFloodFill;
+import com.chocolate.machine.utils.FloodFillGroups;
 import com.hypixel.hytale.component.AddReason;
 import com.hypixel.hytale.component.ComponentAccessor;
+import com.hypixel.hytale.component.ComponentType;
 import com.hypixel.hytale.component.Holder;
 import com.hypixel.hytale.component.Ref;
 import com.hypixel.hytale.logger.HytaleLogger;
@@ -33,6 +42,13 @@ import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.chunk.WorldChunk;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.List;
@@ -40,35 +56,19 @@ import java.util.List;
 public class DungeonService {
 
     private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
-    private static final String DUNGEON_BLOCK_PREFIX = "CM_";
-    private static final String STATE_BLOCK_PREFIX = "*" + DUNGEON_BLOCK_PREFIX;
-    private static final double BLOCK_SCAN_RADIUS = 200.0;
+    // block scans never reach further than this from the dungeon controller on any axis
+    public static final double BLOCK_SCAN_RADIUS = 200.0;
 
     private final SpawnableRegistry spawnableRegistry;
-
-    private static boolean isDungeonBlock(@Nonnull String blockId) {
-        return blockId.startsWith(DUNGEON_BLOCK_PREFIX) || blockId.startsWith(STATE_BLOCK_PREFIX);
-    }
-
-    // *CM_Torch_On -> CM_Torch
-    private static String getBaseBlockId(@Nonnull String blockId) {
-        if (blockId.startsWith("*")) {
-            // Format: *BaseId_StateName - strip leading * and trailing _StateName
-            String withoutStar = blockId.substring(1);
-            int lastUnderscore = withoutStar.lastIndexOf('_');
-            if (lastUnderscore > DUNGEON_BLOCK_PREFIX.length()) {
-                // Only strip if there's content after CM_
-                return withoutStar.substring(0, lastUnderscore);
-            }
-            return withoutStar;
-        }
-        return blockId;
-    }
+    private final DungeonBlockScanner blockScanner;
+    private final MachineConfig config;
 
     private static final String DUNGEON_ENTITY_MODEL = "Trap_Spawner";
 
-    public DungeonService() {
+    public DungeonService(@Nonnull MachineConfig config) {
         this.spawnableRegistry = SpawnableRegistry.getInstance();
+        this.blockScanner = new DungeonBlockScanner();
+        this.config = config;
     }
 
     @Nullable
@@ -123,28 +123,97 @@ public class DungeonService {
         return registerDungeon(dungeonRef, componentAccessor, world, null);
     }
 
+    // registers synchronously, replacing any queued job for the same dungeon
     public int registerDungeon(
             @Nonnull Ref<EntityStore> dungeonRef,
             @Nonnull ComponentAccessor<EntityStore> componentAccessor,
             @Nullable World world,
             @Nullable Vector3d searchOrigin) {
 
+        cancelRegistration(dungeonRef, componentAccessor);
+
+        DungeonRegistrationJob job = beginRegistration(dungeonRef, componentAccessor, world, searchOrigin);
+        if (job == null) {
+            DungeonComponent dungeon = componentAccessor.getComponent(dungeonRef, DungeonComponent.getComponentType());
+            return dungeon != null && dungeon.isRegistered() ? dungeon.getSpawnerCount() : 0;
+        }
+
+        advanceRegistration(job, componentAccessor, Long.MAX_VALUE);
+        return job.getSpawnerCount();
+    }
+
+    // queues registration to be worked through in time-budgeted slices by DungeonRegistrationJobSystem
+    public boolean queueRegistration(
+            @Nonnull Ref<EntityStore> dungeonRef,
+            @Nonnull ComponentAccessor<EntityStore> componentAccessor,
+            @Nullable World world) {
+
+        if (DungeonRegistrationQueue.getResourceType() == null) {
+            registerDungeon(dungeonRef, componentAccessor, world);
+            return false;
+        }
+
+        DungeonRegistrationQueue queue = componentAccessor.getResource(DungeonRegistrationQueue.getResourceType());
+        if (queue == null) {
+            registerDungeon(dungeonRef, componentAccessor, world);
+            return false;
+        }
+
+        if (queue.get(dungeonRef) != null) {
+            return true;
+        }
+
+        DungeonRegistrationJob job = beginRegistration(dungeonRef, componentAccessor, world, null);
+        if (job == null) {
+            return false;
+        }
+
+        queue.add(job);
+        return true;
+    }
+
+    public void cancelRegistration(
+            @Nonnull Ref<EntityStore> dungeonRef,
+            @Nonnull ComponentAccessor<EntityStore> componentAccessor) {
+
+        if (DungeonRegistrationQueue.getResourceType() == null) {
+            return;
+        }
+
+        DungeonRegistrationQueue queue = componentAccessor.getResource(DungeonRegistrationQueue.getResourceType());
+        if (queue == null || queue.remove(dungeonRef) == null) {
+            return;
+        }
+
+        DungeonComponent dungeon = componentAccessor.getComponent(dungeonRef, DungeonComponent.getComponentType());
+        if (dungeon != null) {
+            dungeon.setRegistering(false);
+        }
+    }
+
+    @Nullable
+    private DungeonRegistrationJob beginRegistration(
+            @Nonnull Ref<EntityStore> dungeonRef,
+            @Nonnull ComponentAccessor<EntityStore> componentAccessor,
+            @Nullable World world,
+            @Nullable Vector3d searchOrigin) {
+
         DungeonComponent dungeon = componentAccessor.getComponent(dungeonRef, DungeonComponent.getComponentType());
         if (dungeon == null) {
             LOGGER.atWarning().log("Cannot register dungeon: entity has no DungeonComponent");
-            return 0;
+            return null;
         }
 
         if (dungeon.isRegistered()) {
             LOGGER.atWarning().log("Dungeon already registered, skipping spawner registration");
-            return dungeon.getSpawnerCount();
+            return null;
         }
 
         TransformComponent dungeonTransform = componentAccessor.getComponent(dungeonRef,
                 TransformComponent.getComponentType());
         if (dungeonTransform == null) {
             LOGGER.atWarning().log("Cannot register dungeon: entity has no TransformComponent");
-            return 0;
+            return null;
         }
 
         // Crash recovery: if dungeon was active but we're re-registering, reset state
@@ -155,68 +224,419 @@ public class DungeonService {
             dungeon.clearDungeoneerRefs();
         }
 
+        dungeon.setRegistering(true);
+
+        // use searchOrigin if provided (for CommandBuffer cases where dungeon entity isn't in spatial yet)
+        Vector3d origin = searchOrigin != null ? searchOrigin : dungeonTransform.getPosition();
+        return new DungeonRegistrationJob(dungeonRef, world, origin);
+    }
+
+    // runs the job until it finishes or the deadline (System.nanoTime) passes, returns true when done.
+    // the deadline is checked between steps, a single flood fill or merge always runs to completion
+    public boolean advanceRegistration(
+            @Nonnull DungeonRegistrationJob job,
+            @Nonnull ComponentAccessor<EntityStore> componentAccessor,
+            long deadlineNanos) {
+
+        Ref<EntityStore> dungeonRef = job.getDungeonRef();
+
+        while (!job.isDone()) {
+            // merged away or removed while the job was pending
+            DungeonComponent dungeon = dungeonRef.isValid()
+                    ? componentAccessor.getComponent(dungeonRef, DungeonComponent.getComponentType())
+                    : null;
+            if (dungeon == null) {
+                job.setStage(DungeonRegistrationJob.Stage.DONE);
+                return true;
+            }
+
+            switch (job.getStage()) {
+                case DISCOVER:
+                    discoverStage(job, componentAccessor);
+                    break;
+                case MERGE:
+                    mergeStage(job, dungeon, componentAccessor, deadlineNanos);
+                    break;
+                case SPAWNERS:
+                    spawnerStage(job, dungeon, componentAccessor, deadlineNanos);
+                    break;
+                case ENTRANCE:
+                    entranceStage(job, dungeon, componentAccessor);
+                    break;
+                case BLOCKS:
+                    blockStage(job, dungeon, componentAccessor, deadlineNanos);
+                    break;
+                default:
+                    break;
+            }
+
+            if (!job.isDone() && System.nanoTime() >= deadlineNanos) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void discoverStage(
+            @Nonnull DungeonRegistrationJob job,
+            @Nonnull ComponentAccessor<EntityStore> componentAccessor) {
+
+        Ref<EntityStore> dungeonRef = job.getDungeonRef();
+
+        List<Ref<EntityStore>> spawners;
+        List<Ref<EntityStore>> entrances;
+        List<Ref<EntityStore>> dungeons;
+
+        DungeonNetworkGraph graph = componentAccessor.getResource(DungeonNetworkGraph.getResourceType());
+        if (graph != null && graph.hasNetwork(dungeonRef)) {
+            // the graph already knows the spawners around the controller, no spatial sweep needed
+            // entrances are looked up by id in the entrance registry
+            spawners = graph.collectNetwork(dungeonRef, DungeonNetworkGraph.SPAWNER, new ObjectArrayList<>());
+            entrances = null;
+            dungeons = graph.collectNetwork(dungeonRef, DungeonNetworkGraph.DUNGEON, new ObjectArrayList<>());
+        } else {
+            // only when the graph is missing, the controller is not in it yet (registered through a command
+            // buffer before the add was flushed) or no tracked spawner is in reach of it.
+            // one traversal finds the spawner network plus the entrances and dungeon controllers next to it
+            FloodFillGroups discovered = new FloodFillGroups(List.<ComponentType<EntityStore, ?>>of(
+                    SpawnerComponent.getComponentType(),
+                    DungeonEntranceComponent.getComponentType(),
+                    DungeonComponent.getComponentType()));
+            EntityFloodFill.discover(job.getOrigin(), componentAccessor, BLOCK_SCAN_RADIUS, discovered);
+            spawners = discovered.get(0);
+            entrances = discovered.get(1);
+            dungeons = discovered.get(2);
+        }
+
+        job.spawners = spawners;
+        job.entrances = entrances;
+        job.dungeons = dungeons;
+        job.dungeonCursor = 0;
+        job.nearbyDungeons = new ObjectArrayList<>();
+        job.setStage(DungeonRegistrationJob.Stage.MERGE);
+    }
+
+    private void mergeStage(
+            @Nonnull DungeonRegistrationJob job,
+            @Nonnull DungeonComponent dungeon,
+            @Nonnull ComponentAccessor<EntityStore> componentAccessor,
+            long deadlineNanos) {
+
+        Ref<EntityStore> dungeonRef = job.getDungeonRef();
+        List<Ref<EntityStore>> nearbyDungeons = job.nearbyDungeons != null ? job.nearbyDungeons : new ObjectArrayList<>();
+
+        TransformComponent dungeonTransform = componentAccessor.getComponent(dungeonRef,
+                TransformComponent.getComponentType());
+        List<Ref<EntityStore>> dungeons = job.dungeons;
+        if (dungeonTransform != null && dungeons != null) {
+            double mergeRangeSq = DungeonFinder.MERGE_RANGE * DungeonFinder.MERGE_RANGE;
+            while (job.dungeonCursor < dungeons.size()) {
+                Ref<EntityStore> otherRef = dungeons.get(job.dungeonCursor++);
+                if (otherRef.equals(dungeonRef) || !otherRef.isValid()) continue;
+                TransformComponent otherTransform = componentAccessor.getComponent(otherRef,
+                        TransformComponent.getComponentType());
+                if (otherTransform != null
+                        && dungeonTransform.getPosition().distanceSquaredTo(otherTransform.getPosition()) <= mergeRangeSq) {
+                    nearbyDungeons.add(otherRef);
+                }
+
+                if (System.nanoTime() >= deadlineNanos) {
+                    return;
+                }
+            }
+        }
+        job.dungeons = null;
+        job.nearbyDungeons = null;
+
         // Check for nearby dungeons to merge
-        MergeResult mergeResult = checkAndMergeDungeons(dungeonRef, componentAccessor);
+        MergeResult mergeResult = checkAndMergeDungeons(dungeonRef, componentAccessor, nearbyDungeons);
         if (!mergeResult.primaryDungeonRef.equals(dungeonRef)) {
             LOGGER.atInfo().log("Dungeon was merged into another, skipping registration");
-            return 0;
+            dungeon.setRegistering(false);
+            job.setStage(DungeonRegistrationJob.Stage.DONE);
+            return;
         }
         if (mergeResult.merged) {
             LOGGER.atInfo().log("Merged with nearby dungeon network");
         }
 
-        // Re-fetch dungeon in case merge modified it
-        dungeon = componentAccessor.getComponent(dungeonRef, DungeonComponent.getComponentType());
-        if (dungeon == null) {
-            return 0;
+        job.spawnerCursor = 0;
+        job.setStage(DungeonRegistrationJob.Stage.SPAWNERS);
+    }
+
+    private void spawnerStage(
+            @Nonnull DungeonRegistrationJob job,
+            @Nonnull DungeonComponent dungeon,
+            @Nonnull ComponentAccessor<EntityStore> componentAccessor,
+            long deadlineNanos) {
+
+        List<Ref<EntityStore>> spawners = job.spawners;
+        while (spawners != null && job.spawnerCursor < spawners.size()) {
+            Ref<EntityStore> spawnerRef = spawners.get(job.spawnerCursor++);
+            SpawnerComponent spawner = spawnerRef.isValid()
+                    ? componentAccessor.getComponent(spawnerRef, SpawnerComponent.getComponentType())
+                    : null;
+
+            if (spawner != null) {
+                TransformComponent spawnerTransform = componentAccessor.getComponent(spawnerRef,
+                        TransformComponent.getComponentType());
+                if (spawnerTransform != null) {
+                    job.includeInFootprint(spawnerTransform.getPosition());
+                }
+                dungeon.addSpawnerRef(spawnerRef);
+                registerSpawnerAction(spawnerRef, spawner, componentAccessor);
+                job.spawnerCount++;
+                LOGGER.atFine().log("Registered spawner '%s' to dungeon", spawner.getExecutionId());
+            }
+
+            if (System.nanoTime() >= deadlineNanos) {
+                return;
+            }
         }
 
-        int registeredCount = 0;
+        job.spawners = null;
+        job.setStage(DungeonRegistrationJob.Stage.ENTRANCE);
+    }
 
-        // use searchOrigin if provided (for CommandBuffer cases where dungeon entity isn't in spatial yet)
-        Vector3d floodFillOrigin = searchOrigin != null ? searchOrigin : dungeonTransform.getPosition();
-        List<Ref<EntityStore>> nearbySpawners = EntityFloodFill.floodFillFromPosition(
-                floodFillOrigin, componentAccessor, SpawnerComponent.getComponentType(), BLOCK_SCAN_RADIUS);
+    // the entrance is linked before the block scan so its position can shape the footprint
+    private void entranceStage(
+            @Nonnull DungeonRegistrationJob job,
+            @Nonnull DungeonComponent dungeon,
+            @Nonnull ComponentAccessor<EntityStore> componentAccessor) {
+
+        List<Ref<EntityStore>> entrances = job.entrances;
+        job.entrances = null;
+        if (linkEntrance(dungeon, componentAccessor, job.getOrigin(), entrances)) {
+            Ref<EntityStore> entranceRef = dungeon.getEntranceRef();
+            TransformComponent entranceTransform = entranceRef != null && entranceRef.isValid()
+                    ? componentAccessor.getComponent(entranceRef, TransformComponent.getComponentType())
+                    : null;
+            if (entranceTransform != null) {
+                job.includeInFootprint(entranceTransform.getPosition());
+            }
+        }
+
+        if (job.getWorld() == null) {
+            LOGGER.atWarning().log("Cannot register dungeon blocks: world is null (use registerDungeon with world parameter)");
+            finishRegistration(job, dungeon, componentAccessor);
+            return;
+        }
+
+        startBlockStage(job, dungeon);
+        if (restoreDungeonBlocks(job, dungeon)) {
+            finishRegistration(job, dungeon, componentAccessor);
+            return;
+        }
+        job.setStage(DungeonRegistrationJob.Stage.BLOCKS);
+    }
+
+    private void startBlockStage(@Nonnull DungeonRegistrationJob job, @Nonnull DungeonComponent dungeon) {
+        computeFootprint(job, dungeon);
 
-        for (Ref<EntityStore> spawnerRef : nearbySpawners) {
-            SpawnerComponent spawner = componentAccessor.getComponent(spawnerRef,
-                    SpawnerComponent.getComponentType());
+        LongArrayList columns = new LongArrayList();
+        for (int chunkX = ChunkUtil.chunkCoordinate(job.minX); chunkX <= ChunkUtil.chunkCoordinate(job.maxX); chunkX++) {
+            for (int chunkZ = ChunkUtil.chunkCoordinate(job.minZ); chunkZ <= ChunkUtil.chunkCoordinate(job.maxZ); chunkZ++) {
+                columns.add(ChunkUtil.indexChunk(chunkX, chunkZ));
+            }
+        }
+        job.chunkColumns = columns;
+        job.chunkCursor = 0;
+        job.blockCount = 0;
+        DungeonBlockIndex blockIndex = getBlockIndex(job.getWorld());
+        job.blockVersion = blockIndex != null
+                ? blockIndex.getRegionVersion(job.minX, job.minZ, job.maxX, job.maxZ)
+                : DungeonComponent.NO_BLOCK_VERSION;
+
+        // Clear existing blocks before re-scanning
+        dungeon.clearDungeonBlocks();
+    }
+
+    // box around the spawners, entrance and controller plus padding, widened by any bounds the prefab
+    // carries. without spawners, entrance or prefab bounds there is nothing to go on, so the full
+    // radius is used. never larger than the radius the scan used to cover
+    private void computeFootprint(@Nonnull DungeonRegistrationJob job, @Nonnull DungeonComponent dungeon) {
+        Vector3d center = job.getOrigin();
+        int originX = (int) Math.floor(center.getX());
+        int originY = (int) Math.floor(center.getY());
+        int originZ = (int) Math.floor(center.getZ());
+        int radius = (int) BLOCK_SCAN_RADIUS;
+
+        Vector3i prefabMin = dungeon.getPrefabBoundsMin();
+        Vector3i prefabMax = dungeon.getPrefabBoundsMax();
+        boolean hasPrefabBounds = prefabMin != null && prefabMax != null;
+
+        int minX, minY, minZ, maxX, maxY, maxZ;
+        if (!job.hasFootprintPoints() && !hasPrefabBounds) {
+            minX = originX - radius;
+            minY = originY - radius;
+            minZ = originZ - radius;
+            maxX = originX + radius;
+            maxY = originY + radius;
+            maxZ = originZ + radius;
+        } else {
+            int padding = config.getFootprintPadding();
+            minX = Math.min(originX, job.footprintMinX) - padding;
+            minY = Math.min(originY, job.footprintMinY) - padding;
+            minZ = Math.min(originZ, job.footprintMinZ) - padding;
+            maxX = Math.max(originX, job.footprintMaxX) + padding;
+            maxY = Math.max(originY, job.footprintMaxY) + padding;
+            maxZ = Math.max(originZ, job.footprintMaxZ) + padding;
+
+            if (hasPrefabBounds) {
+                minX = Math.min(minX, originX + prefabMin.getX());
+                minY = Math.min(minY, originY + prefabMin.getY());
+                minZ = Math.min(minZ, originZ + prefabMin.getZ());
+                maxX = Math.max(maxX, originX + prefabMax.getX());
+                maxY = Math.max(maxY, originY + prefabMax.getY());
+                maxZ = Math.max(maxZ, originZ + prefabMax.getZ());
+            }
+
+            minX = Math.max(minX, originX - radius);
+            minY = Math.max(minY, originY - radius);
+            minZ = Math.max(minZ, originZ - radius);
+            maxX = Math.min(maxX, originX + radius);
+            maxY = Math.min(maxY, originY + radius);
+            maxZ = Math.min(maxZ, originZ + radius);
+        }
+
+        job.minX = minX;
+        job.minY = Math.max(0, minY);
+        job.minZ = minZ;
+        job.maxX = maxX;
+        job.maxY = Math.min(ChunkUtil.HEIGHT - 1, maxY);
+        job.maxZ = maxZ;
+        dungeon.setFootprint(job.minX, job.minY, job.minZ, job.maxX, job.maxY, job.maxZ);
+        // tells the world's block index which chunks to keep indexed, DungeonIndexSystem does the same
+        // for controllers that load with a footprint already set
+        DungeonBlockIndex blockIndex = getBlockIndex(job.getWorld());
+        if (blockIndex != null) {
+            blockIndex.trackFootprint(job.getDungeonRef(), dungeon);
+        }
+
+        LOGGER.atInfo().log("Dungeon footprint (%d, %d, %d) to (%d, %d, %d)",
+                job.minX, job.minY, job.minZ, job.maxX, job.maxY, job.maxZ);
+    }
 
-            if (spawner == null) {
+    @Nullable
+    private static DungeonBlockIndex getBlockIndex(@Nullable World world) {
+        if (world == null || DungeonBlockIndex.getResourceType() == null) {
+            return null;
+        }
+        return world.getEntityStore().getStore().getResource(DungeonBlockIndex.getResourceType());
+    }
+
+    // reuses the block list saved by the last scan when its stamp still matches these bounds.
+    // the block index's region version catches any CM_ change it saw since the scan, whoever made it.
+    // saved blocks in loaded chunks are checked against the world, any mismatch means a rescan
+    private boolean restoreDungeonBlocks(@Nonnull DungeonRegistrationJob job, @Nonnull DungeonComponent dungeon) {
+        long savedVersion = dungeon.getSavedBlockVersion();
+        if (savedVersion != DungeonComponent.NO_BLOCK_VERSION && job.blockVersion != DungeonComponent.NO_BLOCK_VERSION
+                && savedVersion != job.blockVersion) {
+            LOGGER.atInfo().log("Dungeon blocks changed since the last scan, rescanning");
+            dungeon.invalidateSavedBlocks();
+            return false;
+        }
+        if (!dungeon.restoreDungeonBlocks(job.minX, job.minY, job.minZ, job.maxX, job.maxY, job.maxZ)) {
+            return false;
+        }
+
+        World world = job.getWorld();
+        DungeonBlockTypes types = DungeonBlockTypes.getInstance();
+        DungeonBlockSet blocks = dungeon.getDungeonBlockSet();
+        for (int i = 0; i < blocks.size(); i++) {
+            int x = blocks.getX(i);
+            int y = blocks.getY(i);
+            int z = blocks.getZ(i);
+            WorldChunk chunk = world != null ? world.getChunkIfInMemory(ChunkUtil.indexChunkFromBlock(x, z)) : null;
+            if (chunk == null) {
                 continue;
             }
 
-            dungeon.addSpawnerRef(spawnerRef);
-            registerSpawnerAction(spawnerRef, spawner, componentAccessor);
+            if (types.getBaseIndex(chunk.getBlock(x, y, z)) != blocks.getBaseIndex(i)) {
+                LOGGER.atInfo().log("Saved dungeon blocks are stale at (%d, %d, %d), rescanning", x, y, z);
+                dungeon.clearDungeonBlocks();
+                dungeon.invalidateSavedBlocks();
+                return false;
+            }
+        }
+
+        dungeon.setSavedBlockVersion(job.blockVersion);
+        job.blockCount = dungeon.getDungeonBlockCount();
+        job.chunkColumns = null;
+        LOGGER.atInfo().log("Restored %d saved dungeon blocks", job.blockCount);
+        return true;
+    }
+
+    private void blockStage(
+            @Nonnull DungeonRegistrationJob job,
+            @Nonnull DungeonComponent dungeon,
+            @Nonnull ComponentAccessor<EntityStore> componentAccessor,
+            long deadlineNanos) {
+
+        World world = job.getWorld();
+        LongArrayList columns = job.chunkColumns;
+        if (world == null || columns == null) {
+            finishRegistration(job, dungeon, componentAccessor);
+            return;
+        }
+
+        // batches sized so a parallel scan keeps every worker busy
+        int parallelism = config.getBlockScanParallelism();
+        int batchSize = Math.max(1, parallelism * 2);
 
-            registeredCount++;
-            LOGGER.atFine().log("Registered spawner '%s' to dungeon", spawner.getExecutionId());
+        while (job.chunkCursor < columns.size()) {
+            int end = Math.min(columns.size(), job.chunkCursor + batchSize);
+            job.blockCount += registerDungeonBlocks(dungeon, world, columns.subList(job.chunkCursor, end),
+                    job.minX, job.minY, job.minZ, job.maxX, job.maxY, job.maxZ, componentAccessor);
+            job.chunkCursor = end;
+
+            if (System.nanoTime() >= deadlineNanos) {
+                return;
+            }
         }
 
-        // Register dungeon blocks (CM_* blocks)
-        int blockCount = 0;
-        if (world != null) {
-            Vector3d blockCenter = searchOrigin != null ? searchOrigin : dungeonTransform.getPosition();
-            blockCount = registerDungeonBlocks(dungeon, world, blockCenter);
-        } else {
-            LOGGER.atWarning().log("Cannot register dungeon blocks: world is null (use registerDungeon with world parameter)");
+        if (job.blockCount > 0) {
+            LOGGER.atInfo().log("Found %d dungeon blocks matching prefix '%s'",
+                    job.blockCount, DungeonBlockTypes.DUNGEON_BLOCK_PREFIX);
         }
 
-        // Link entrance
-        linkEntrance(dungeonRef, dungeon, componentAccessor, floodFillOrigin);
+        dungeon.saveDungeonBlocks(job.minX, job.minY, job.minZ, job.maxX, job.maxY, job.maxZ);
+        dungeon.setSavedBlockVersion(job.blockVersion);
+        job.chunkColumns = null;
+        finishRegistration(job, dungeon, componentAccessor);
+    }
+
+    private void finishRegistration(
+            @Nonnull DungeonRegistrationJob job,
+            @Nonnull DungeonComponent dungeon,
+            @Nonnull ComponentAccessor<EntityStore> componentAccessor) {
 
+        dungeon.setRegistering(false);
         dungeon.setRegistered(true);
+        dungeon.rebuildSpawnerGrid(componentAccessor);
+        job.setStage(DungeonRegistrationJob.Stage.DONE);
         LOGGER.atInfo().log("Dungeon registration complete: %d spawners, %d dungeon blocks registered",
-                registeredCount, blockCount);
-
-        return registeredCount;
+                job.getSpawnerCount(), job.getBlockCount());
+
+        // activation requested while the job was still running
+        if (dungeon.isPendingActivation()) {
+            Ref<EntityStore> holderRef = dungeon.getPendingActivationPlayerRef();
+            dungeon.setPendingActivation(false);
+            dungeon.setPendingActivationPlayerRef(null);
+            LOGGER.atInfo().log("Running activation queued during registration");
+            activate(job.getDungeonRef(), holderRef != null && holderRef.isValid() ? holderRef : null,
+                    componentAccessor);
+        }
     }
 
+    // entrance registry lookup by dungeon id, nearest to the dungeon when several share the id.
+    // without the registry the candidates from the discovery pass are checked instead
     private boolean linkEntrance(
-            @Nonnull Ref<EntityStore> dungeonRef,
             @Nonnull DungeonComponent dungeon,
             @Nonnull ComponentAccessor<EntityStore> componentAccessor,
-            @Nonnull Vector3d searchOrigin) {
+            @Nonnull Vector3d dungeonPosition,
+            @Nullable List<Ref<EntityStore>> entrances) {
 
         String dungeonId = dungeon.getDungeonId();
         if (dungeonId.isEmpty()) {
@@ -224,11 +644,25 @@ public class DungeonService {
             return false;
         }
 
-        // Search for entrance entities via flood-fill from searchOrigin
-        List<Ref<EntityStore>> nearbyEntities = EntityFloodFill.floodFillFromPosition(
-                searchOrigin, componentAccessor, DungeonEntranceComponent.getComponentType(), BLOCK_SCAN_RADIUS);
+        DungeonEntranceRegistry registry = DungeonEntranceRegistry.getResourceType() != null
+                ? componentAccessor.getResource(DungeonEntranceRegistry.getResourceType())
+                : null;
+        if (registry != null) {
+            Ref<EntityStore> entranceRef = registry.findNearest(dungeonId, dungeonPosition);
+            if (entranceRef != null) {
+                dungeon.setEntranceRef(entranceRef);
+                LOGGER.atInfo().log("Linked entrance to dungeon '%s'", dungeonId);
+                return true;
+            }
+            LOGGER.atWarning().log("No entrance found for dungeon '%s'", dungeonId);
+            return false;
+        }
 
-        for (Ref<EntityStore> entityRef : nearbyEntities) {
+        if (entrances == null) {
+            return false;
+        }
+
+        for (Ref<EntityStore> entityRef : entrances) {
             if (!entityRef.isValid()) continue;
 
             DungeonEntranceComponent entrance = componentAccessor.getComponent(entityRef,
@@ -263,115 +697,18 @@ public class DungeonService {
             @Nonnull Ref<EntityStore> dungeonRef,
             @Nonnull ComponentAccessor<EntityStore> store) {
 
-        DungeonComponent dungeon = store.getComponent(dungeonRef, DungeonComponent.getComponentType());
-        if (dungeon == null) {
-            return new MergeResult(dungeonRef, false, false);
-        }
-
         // Find other dungeons within merge range
-        List<Ref<EntityStore>> nearbyDungeons = DungeonFinder.findDungeonsToMerge(dungeonRef, store);
-
-        if (nearbyDungeons.isEmpty()) {
-            return new MergeResult(dungeonRef, false, false);
-        }
-
-        // Determine which dungeon has a configured BossRoom (non-empty dungeonId)
-        boolean thisHasBossRoom = !dungeon.getDungeonId().isEmpty();
-        TransformComponent thisTransform = store.getComponent(dungeonRef, TransformComponent.getComponentType());
-        Vector3d thisPosition = thisTransform != null ? thisTransform.getPosition() : new Vector3d(0, 0, 0);
-
-        Ref<EntityStore> primaryRef = dungeonRef;
-        DungeonComponent primaryDungeon = dungeon;
-        boolean hasConflict = false;
-
-        for (Ref<EntityStore> otherRef : nearbyDungeons) {
-            if (!otherRef.isValid()) continue;
-
-            DungeonComponent otherDungeon = store.getComponent(otherRef, DungeonComponent.getComponentType());
-            if (otherDungeon == null) continue;
-
-            boolean otherHasBossRoom = !otherDungeon.getDungeonId().isEmpty();
-            TransformComponent otherTransform = store.getComponent(otherRef, TransformComponent.getComponentType());
-            Vector3d otherPosition = otherTransform != null ? otherTransform.getPosition() : new Vector3d(0, 0, 0);
-
-            // check for duplicate paste - exact same position means duplicate entity
-            double distSq = thisPosition.distanceSquaredTo(otherPosition);
-            if (distSq < 1.0) {
-                // same position - this is a duplicate, keep the existing one (other is already registered)
-                if (otherDungeon.isRegistered()) {
-                    LOGGER.atInfo().log("[DungeonService] Duplicate dungeon detected at same position, removing newer entity");
-                    store.removeComponent(dungeonRef, DungeonComponent.getComponentType());
-                    return new MergeResult(otherRef, true, false);
-                }
-                // neither registered yet, keep this one
-                LOGGER.atInfo().log("[DungeonService] Duplicate dungeon detected at same position, removing duplicate");
-                store.removeComponent(otherRef, DungeonComponent.getComponentType());
-                continue;
-            }
-
-            // both have BossRooms but different positions - actual conflict
-            if (thisHasBossRoom && otherHasBossRoom) {
-                LOGGER.atSevere().log(
-                        "[DungeonService] ERROR: Two BossRooms within %.0f blocks! " +
-                        "BossRoom 1 '%s' at (%.1f, %.1f, %.1f), " +
-                        "BossRoom 2 '%s' at (%.1f, %.1f, %.1f). " +
-                        "These dungeons will NOT be merged - fix the prefab placement!",
-                        DungeonFinder.MERGE_RANGE,
-                        dungeon.getDungeonId(),
-                        thisPosition.getX(), thisPosition.getY(), thisPosition.getZ(),
-                        otherDungeon.getDungeonId(),
-                        otherPosition.getX(), otherPosition.getY(), otherPosition.getZ());
-                hasConflict = true;
-                continue;
-            }
-
-            // Decide which is primary: prefer the one with BossRoom
-            Ref<EntityStore> secondaryRef;
-            DungeonComponent secondaryDungeon;
-
-            if (otherHasBossRoom && !thisHasBossRoom) {
-                // Other has BossRoom, make it primary
-                primaryRef = otherRef;
-                primaryDungeon = otherDungeon;
-                secondaryRef = dungeonRef;
-                secondaryDungeon = dungeon;
-                thisHasBossRoom = true; // Now we have a BossRoom
-            } else {
-                // This is primary (either has BossRoom or neither does)
-                secondaryRef = otherRef;
-                secondaryDungeon = otherDungeon;
-            }
-
-            // Merge: copy spawners from secondary to primary
-            LOGGER.atInfo().log("[DungeonService] Merging dungeon at (%.1f, %.1f, %.1f) into '%s'",
-                    otherPosition.getX(), otherPosition.getY(), otherPosition.getZ(),
-                    primaryDungeon.getDungeonId().isEmpty() ? "(unnamed)" : primaryDungeon.getDungeonId());
-
-            int spawnersMerged = secondaryDungeon.getSpawnerCount();
-            for (Ref<EntityStore> spawnerRef : secondaryDungeon.getSpawnerRefs()) {
-                if (spawnerRef.isValid()) {
-                    primaryDungeon.addSpawnerRef(spawnerRef);
-                }
-            }
-
-            // Copy entrance ref if secondary has one and primary doesn't
-            if (primaryDungeon.getEntranceRef() == null && secondaryDungeon.getEntranceRef() != null) {
-                primaryDungeon.setEntranceRef(secondaryDungeon.getEntranceRef());
-            }
-
-            // Clear secondary's refs so onEntityRemove doesn't clean up spawners that now belong to primary
-            secondaryDungeon.clearSpawnerRefs();
-            secondaryDungeon.clearDungeoneerRefs();
-            secondaryDungeon.setEntranceRef(null);
-
-            // Remove DungeonComponent from secondary entity
-            store.removeComponent(secondaryRef, DungeonComponent.getComponentType());
+        return checkAndMergeDungeons(dungeonRef, store, DungeonFinder.findDungeonsToMerge(dungeonRef, store));
+    }
 
-            LOGGER.atInfo().log("[DungeonService] Merged %d spawners, removed secondary DungeonComponent",
-                    spawnersMerged);
-        }
+    // nearbyDungeons: other dungeon controllers within MERGE_RANGE, already found by the caller.
+    // the planner also settles any other controllers clustered around this one in the same pass
+    public MergeResult checkAndMergeDungeons(
+            @Nonnull Ref<EntityStore> dungeonRef,
+            @Nonnull ComponentAccessor<EntityStore> store,
+            @Nonnull List<Ref<EntityStore>> nearbyDungeons) {
 
-        return new MergeResult(primaryRef, !nearbyDungeons.isEmpty() && !hasConflict, hasConflict);
+        return new DungeonMergePlanner(store).mergeAround(dungeonRef, nearbyDungeons);
     }
 
     public void activate(
@@ -390,6 +727,14 @@ public class DungeonService {
             return;
         }
 
+        // registration job still running, activate once it completes
+        if (dungeon.isRegistering()) {
+            LOGGER.atInfo().log("Dungeon registration in progress, queueing activation");
+            dungeon.setPendingActivation(true);
+            dungeon.setPendingActivationPlayerRef(artifactHolderRef);
+            return;
+        }
+
         // auto-register if needed
         if (!dungeon.isRegistered()) {
             LOGGER.atInfo().log("Dungeon not registered, registering spawners first...");
@@ -427,8 +772,8 @@ public class DungeonService {
             return false;
         }
 
-        Ref<EntityStore> dungeonRef = dungeoneer.getDungeonRef();
-        if (dungeonRef == null || !dungeonRef.isValid()) {
+        Ref<EntityStore> dungeonRef = DungeonFinder.resolveDungeon(dungeoneer, componentAccessor);
+        if (dungeonRef == null) {
             LOGGER.atWarning().log("Cannot pick up relic: dungeoneer has no valid dungeon reference");
             return false;
         }
@@ -462,8 +807,8 @@ public class DungeonService {
             return;
         }
 
-        Ref<EntityStore> dungeonRef = dungeoneer.getDungeonRef();
-        if (dungeonRef == null || !dungeonRef.isValid()) {
+        Ref<EntityStore> dungeonRef = DungeonFinder.resolveDungeon(dungeoneer, componentAccessor);
+        if (dungeonRef == null) {
             dungeoneer.setRelicHolder(false);
             return;
         }
@@ -521,10 +866,24 @@ public class DungeonService {
                 deactivatedCount, blocksDeactivated);
     }
 
+    // queued states from earlier toggles are dropped and the inactive state is queued afresh, so
+    // unloaded chunks come back inactive even if the dungeon was already deactivated
     public void reset(
             @Nonnull Ref<EntityStore> dungeonRef,
             @Nonnull ComponentAccessor<EntityStore> componentAccessor) {
+        DungeonComponent dungeon = componentAccessor.getComponent(dungeonRef, DungeonComponent.getComponentType());
+        boolean wasActive = dungeon != null && dungeon.isActive();
+        PendingBlockStateQueue pending = PendingBlockStateQueue.getResourceType() != null
+                ? componentAccessor.getResource(PendingBlockStateQueue.getResourceType())
+                : null;
+        if (dungeon != null && pending != null) {
+            pending.removeAll(dungeon.getDungeonBlockSet());
+        }
+
         deactivate(dungeonRef, componentAccessor);
+        if (dungeon != null && !wasActive) {
+            deactivateDungeonBlocks(dungeon, componentAccessor);
+        }
         LOGGER.atInfo().log("Dungeon reset");
     }
 
@@ -726,57 +1085,61 @@ public class DungeonService {
         }
     }
 
+    // drops cached block index chunks around a dungeon, for content pasted in without block events
+    public void invalidateBlockIndex(
+            @Nonnull Vector3d center,
+            @Nonnull ComponentAccessor<EntityStore> componentAccessor) {
+        if (DungeonBlockIndex.getResourceType() == null) {
+            return;
+        }
+
+        DungeonBlockIndex blockIndex = componentAccessor.getResource(DungeonBlockIndex.getResourceType());
+        if (blockIndex == null) {
+            return;
+        }
+
+        int radius = (int) BLOCK_SCAN_RADIUS;
+        blockIndex.invalidateRange(
+                (int) center.getX() - radius, (int) center.getZ() - radius,
+                (int) center.getX() + radius, (int) center.getZ() + radius);
+    }
+
+    // collects CM_ blocks from one slice of chunk columns into the dungeon
     private int registerDungeonBlocks(
             @Nonnull DungeonComponent dungeon,
             @Nonnull World world,
-            @Nonnull Vector3d center) {
-        int radius = (int) BLOCK_SCAN_RADIUS;
-        int registeredCount = 0;
-
-        int minX = (int) center.getX() - radius;
-        int maxX = (int) center.getX() + radius;
-        int minY = Math.max(0, (int) center.getY() - radius);
-        int maxY = Math.min(255, (int) center.getY() + radius);
-        int minZ = (int) center.getZ() - radius;
-        int maxZ = (int) center.getZ() + radius;
-
-        // Clear existing blocks before re-scanning
-        dungeon.clearDungeonBlocks();
+            @Nonnull LongList chunkColumns,
+            int minX, int minY, int minZ,
+            int maxX, int maxY, int maxZ,
+            @Nonnull ComponentAccessor<EntityStore> componentAccessor) {
 
-        for (int x = minX; x <= maxX; x++) {
-            for (int z = minZ; z <= maxZ; z++) {
-                WorldChunk chunk = world.getChunkIfInMemory(ChunkUtil.indexChunkFromBlock(x, z));
-                if (chunk == null) {
-                    continue;
-                }
+        DungeonBlockScanner.BlockConsumer collector = dungeon::addDungeonBlock;
+
+        // answer from the per-chunk index when available, full scan otherwise.
+        // both gather results off-thread when configured and feed the component here in one pass
+        int parallelism = config.getBlockScanParallelism();
+        DungeonBlockIndex blockIndex = DungeonBlockIndex.getResourceType() != null
+                ? componentAccessor.getResource(DungeonBlockIndex.getResourceType())
+                : null;
+        if (blockIndex != null) {
+            return blockIndex.collectChunks(world, chunkColumns, minX, minY, minZ, maxX, maxY, maxZ,
+                    parallelism, collector);
+        }
 
-                for (int y = minY; y <= maxY; y++) {
-                    BlockType blockType = chunk.getBlockType(x, y, z);
-                    if (blockType == null || blockType.isUnknown()) {
-                        continue;
-                    }
-
-                    String blockId = blockType.getId();
-                    if (blockId != null && isDungeonBlock(blockId)) {
-                        // Store the base block ID (strip state prefix/suffix if present)
-                        String baseBlockId = getBaseBlockId(blockId);
-                        DungeonBlockEntry entry = new DungeonBlockEntry(x, y, z, baseBlockId);
-                        dungeon.addDungeonBlock(entry);
-                        registeredCount++;
-
-                        LOGGER.atFine().log("Registered dungeon block '%s' (base: '%s') at (%d, %d, %d)",
-                                blockId, baseBlockId, x, y, z);
-                    }
-                }
+        List<WorldChunk> loaded = new ObjectArrayList<>();
+        for (int i = 0; i < chunkColumns.size(); i++) {
+            WorldChunk chunk = world.getChunkIfInMemory(chunkColumns.getLong(i));
+            if (chunk != null) {
+                loaded.add(chunk);
             }
         }
 
-        if (registeredCount > 0) {
-            LOGGER.atInfo().log("Found %d dungeon blocks matching prefix '%s'",
-                    registeredCount, DUNGEON_BLOCK_PREFIX);
+        int found = 0;
+        for (DungeonBlockScanner.ChunkBlocks blocks : blockScanner.scanChunks(loaded,
+                minX, minY, minZ, maxX, maxY, maxZ, parallelism)) {
+            found += blocks.forEach(collector);
         }
-
-        return registeredCount;
+        return found;
     }
 
     private int activateDungeonBlocks(
@@ -789,14 +1152,7 @@ public class DungeonService {
             return 0;
         }
 
-        int activatedCount = 0;
-        for (DungeonBlockEntry entry : dungeon.getDungeonBlocks()) {
-            if (setBlockState(world, entry.getPosition(), entry.getActiveState())) {
-                activatedCount++;
-            }
-        }
-
-        return activatedCount;
+        return setDungeonBlockStates(world, dungeon.getDungeonBlockSet(), true, componentAccessor);
     }
 
     private int deactivateDungeonBlocks(
@@ -809,33 +1165,84 @@ public class DungeonService {
             return 0;
         }
 
-        int deactivatedCount = 0;
-        for (DungeonBlockEntry entry : dungeon.getDungeonBlocks()) {
-            if (setBlockState(world, entry.getPosition(), entry.getInactiveState())) {
-                deactivatedCount++;
+        return setDungeonBlockStates(world, dungeon.getDungeonBlockSet(), false, componentAccessor);
+    }
+
+    // applies the state chunk by chunk with one chunk lookup each.
+    // blocks already in the requested state are counted but not touched, blocks in unloaded chunks
+    // are queued and applied when their chunk loads
+    private int setDungeonBlockStates(
+            @Nonnull World world,
+            @Nonnull DungeonBlockSet blocks,
+            boolean active,
+            @Nonnull ComponentAccessor<EntityStore> componentAccessor) {
+
+        PendingBlockStateQueue pending = PendingBlockStateQueue.getResourceType() != null
+                ? componentAccessor.getResource(PendingBlockStateQueue.getResourceType())
+                : null;
+        String state = active ? DungeonBlockEntry.ACTIVE_STATE : DungeonBlockEntry.INACTIVE_STATE;
+        Long2ObjectOpenHashMap<IntArrayList> byChunk = new Long2ObjectOpenHashMap<>();
+        for (int i = 0; i < blocks.size(); i++) {
+            long chunkIndex = ChunkUtil.indexChunkFromBlock(blocks.getX(i), blocks.getZ(i));
+            IntArrayList chunkEntries = byChunk.get(chunkIndex);
+            if (chunkEntries == null) {
+                chunkEntries = new IntArrayList();
+                byChunk.put(chunkIndex, chunkEntries);
             }
+            chunkEntries.add(i);
         }
 
-        return deactivatedCount;
-    }
+        DungeonBlockTypes types = DungeonBlockTypes.getInstance();
+        int changed = 0;
+        int updated = 0;
+        int deferred = 0;
+        for (Long2ObjectMap.Entry<IntArrayList> chunkEntry : byChunk.long2ObjectEntrySet()) {
+            IntArrayList chunkEntries = chunkEntry.getValue();
+            WorldChunk chunk = world.getChunkIfInMemory(chunkEntry.getLongKey());
+            if (chunk == null) {
+                if (pending == null) {
+                    LOGGER.atFine().log("Cannot set block state: chunk not loaded for %d dungeon blocks",
+                            chunkEntries.size());
+                    continue;
+                }
+                for (int j = 0; j < chunkEntries.size(); j++) {
+                    int i = chunkEntries.getInt(j);
+                    pending.put(blocks.getX(i), blocks.getY(i), blocks.getZ(i), state);
+                }
+                deferred += chunkEntries.size();
+                continue;
+            }
 
-    private boolean setBlockState(@Nonnull World world, @Nonnull Vector3i pos, @Nonnull String state) {
-        WorldChunk chunk = world.getChunkIfInMemory(ChunkUtil.indexChunkFromBlock(pos.getX(), pos.getZ()));
-        if (chunk == null) {
-            LOGGER.atFine().log("Cannot set block state: chunk not loaded at (%d, %d)", pos.getX(), pos.getZ());
-            return false;
-        }
+            for (int j = 0; j < chunkEntries.size(); j++) {
+                int i = chunkEntries.getInt(j);
+                int x = blocks.getX(i);
+                int y = blocks.getY(i);
+                int z = blocks.getZ(i);
 
-        BlockType blockType = chunk.getBlockType(pos.getX(), pos.getY(), pos.getZ());
-        if (blockType == null || blockType.isUnknown()) {
-            LOGGER.atFine().log("Cannot set block state: no block at (%d, %d, %d)",
-                    pos.getX(), pos.getY(), pos.getZ());
-            return false;
+                if (pending != null) {
+                    pending.remove(x, y, z);
+                }
+
+                if (state.equals(types.getStateForType(chunk.getBlock(x, y, z)))) {
+                    updated++;
+                    continue;
+                }
+
+                BlockType blockType = chunk.getBlockType(x, y, z);
+                if (blockType == null || blockType.isUnknown()) {
+                    LOGGER.atFine().log("Cannot set block state: no block at (%d, %d, %d)", x, y, z);
+                    continue;
+                }
+
+                updated++;
+
+                chunk.setBlockInteractionState(new Vector3i(x, y, z), blockType, state);
+                changed++;
+            }
         }
 
-        chunk.setBlockInteractionState(pos, blockType, state);
-        LOGGER.atFine().log("Set block '%s' at (%d, %d, %d) to state '%s'",
-                blockType.getId(), pos.getX(), pos.getY(), pos.getZ(), state);
-        return true;
+        LOGGER.atFine().log("Set %d dungeon blocks to %s across %d chunks (%d already in state, %d deferred)",
+                changed, active ? "active" : "inactive", byChunk.size(), updated - changed, deferred);
+        return updated;
     }
 }
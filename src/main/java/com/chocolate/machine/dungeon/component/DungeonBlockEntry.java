@@ -1,13 +1,14 @@
 package com.chocolate.machine.dungeon.component;
 
+import com.chocolate.machine.dungeon.DungeonBlockTypes;
 import com.hypixel.hytale.math.vector.Vector3i;
 
 import javax.annotation.Nonnull;
 
 public class DungeonBlockEntry {
 
-    private static final String ACTIVE_STATE = "On";
-    private static final String INACTIVE_STATE = "default";
+    public static final String ACTIVE_STATE = "On";
+    public static final String INACTIVE_STATE = DungeonBlockTypes.DEFAULT_STATE;
 
     @Nonnull
     private final Vector3i position;
@@ -0,0 +1,121 @@
+package com.chocolate.machine.dungeon.component;
+
+import com.chocolate.machine.dungeon.DungeonBlockScanner;
+import com.chocolate.machine.dungeon.DungeonBlockTypes;
+import com.chocolate.machine.utils.PackedBlockPos;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import javax.annotation.Nonnull;
+import java.util.AbstractList;
+import java.util.List;
+
+// insertion-ordered set of dungeon blocks: packed positions plus DungeonBlockTypes base indices.
+// the slot map gives O(1) de-duplication, iteration goes straight over the primitive lists
+public class DungeonBlockSet {
+
+    private static final int NO_SLOT = -1;
+
+    private final LongArrayList positions = new LongArrayList();
+    private final IntArrayList baseIndices = new IntArrayList();
+    private final Long2IntOpenHashMap slots = new Long2IntOpenHashMap();
+
+    private final List<DungeonBlockEntry> entryView = new AbstractList<DungeonBlockEntry>() {
+        @Override
+        public DungeonBlockEntry get(int index) {
+            return new DungeonBlockEntry(getX(index), getY(index), getZ(index), getBaseId(index));
+        }
+
+        @Override
+        public int size() {
+            return positions.size();
+        }
+    };
+
+    public DungeonBlockSet() {
+        slots.defaultReturnValue(NO_SLOT);
+    }
+
+    // returns false if the position is already in the set
+    public boolean add(int x, int y, int z, int baseIndex) {
+        return add(PackedBlockPos.pack(x, y, z), baseIndex);
+    }
+
+    public boolean add(long packedPosition, int baseIndex) {
+        if (slots.putIfAbsent(packedPosition, positions.size()) != NO_SLOT) {
+            return false;
+        }
+        positions.add(packedPosition);
+        baseIndices.add(baseIndex);
+        return true;
+    }
+
+    public boolean contains(int x, int y, int z) {
+        return slots.containsKey(PackedBlockPos.pack(x, y, z));
+    }
+
+    public boolean contains(long packedPosition) {
+        return slots.containsKey(packedPosition);
+    }
+
+    public int size() {
+        return positions.size();
+    }
+
+    public boolean isEmpty() {
+        return positions.isEmpty();
+    }
+
+    public void clear() {
+        positions.clear();
+        baseIndices.clear();
+        slots.clear();
+    }
+
+    public long getPosition(int index) {
+        return positions.getLong(index);
+    }
+
+    public int getX(int index) {
+        return PackedBlockPos.unpackX(positions.getLong(index));
+    }
+
+    public int getY(int index) {
+        return PackedBlockPos.unpackY(positions.getLong(index));
+    }
+
+    public int getZ(int index) {
+        return PackedBlockPos.unpackZ(positions.getLong(index));
+    }
+
+    public int getBaseIndex(int index) {
+        return baseIndices.getInt(index);
+    }
+
+    @Nonnull
+    public String getBaseId(int index) {
+        return DungeonBlockTypes.getInstance().getBaseId(baseIndices.getInt(index));
+    }
+
+    public void forEach(@Nonnull DungeonBlockScanner.BlockConsumer consumer) {
+        for (int i = 0; i < positions.size(); i++) {
+            long packed = positions.getLong(i);
+            consumer.accept(PackedBlockPos.unpackX(packed), PackedBlockPos.unpackY(packed),
+                    PackedBlockPos.unpackZ(packed), baseIndices.getInt(i));
+        }
+    }
+
+    public void addAll(@Nonnull DungeonBlockSet other) {
+        for (int i = 0; i < other.size(); i++) {
+            add(other.positions.getLong(i), other.baseIndices.getInt(i));
+        }
+    }
+
+    // read-only list view, entries are created on access
+    @Nonnull
+    public List<DungeonBlockEntry> asEntryList() {
+        return entryView;
+    }
+}
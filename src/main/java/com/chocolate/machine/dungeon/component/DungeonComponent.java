@@ -1,20 +1,30 @@
 package com.chocolate.machine.dungeon.component;
 
+import com.chocolate.machine.dungeon.DungeonBlockTypes;
+import com.chocolate.machine.utils.PackedBlockPos;
 import com.hypixel.hytale.codec.Codec;
 import com.hypixel.hytale.codec.KeyedCodec;
 import com.hypixel.hytale.codec.builder.BuilderCodec;
 import com.hypixel.hytale.codec.validation.Validators;
 import com.hypixel.hytale.component.Component;
+import com.hypixel.hytale.component.ComponentAccessor;
 import com.hypixel.hytale.component.ComponentType;
 import com.hypixel.hytale.component.Ref;
 import com.hypixel.hytale.math.vector.Vector3d;
+import com.hypixel.hytale.math.vector.Vector3i;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class DungeonComponent implements Component<EntityStore> {
 
@@ -45,8 +55,48 @@ public class DungeonComponent implements Component<EntityStore> {
                     (c, v) -> c.active = v,
                     c -> c.active)
             .add()
+            .append(new KeyedCodec<>("PrefabBoundsMin", Codec.INT_ARRAY),
+                    (c, v) -> c.prefabBoundsMin = v,
+                    c -> c.prefabBoundsMin)
+            .add()
+            .append(new KeyedCodec<>("PrefabBoundsMax", Codec.INT_ARRAY),
+                    (c, v) -> c.prefabBoundsMax = v,
+                    c -> c.prefabBoundsMax)
+            .add()
+            .append(new KeyedCodec<>("Footprint", Codec.INT_ARRAY),
+                    (c, v) -> c.footprint = v,
+                    c -> c.footprint)
+            .add()
+            .append(new KeyedCodec<>("BlockStamp", Codec.LONG),
+                    (c, v) -> c.blockStamp = v,
+                    c -> c.blockStamp)
+            .add()
+            .append(new KeyedCodec<>("BlockBounds", Codec.INT_ARRAY),
+                    (c, v) -> c.blockBounds = v,
+                    c -> c.blockBounds)
+            .add()
+            .append(new KeyedCodec<>("BlockIds", Codec.STRING_ARRAY),
+                    (c, v) -> c.savedBlockIds = v,
+                    c -> c.savedBlockIds)
+            .add()
+            .append(new KeyedCodec<>("BlockPositions", Codec.LONG_ARRAY),
+                    (c, v) -> {
+                        c.savedBlockPositions = v;
+                        c.savedPositionSet = null;
+                    },
+                    c -> c.savedBlockPositions)
+            .add()
+            .append(new KeyedCodec<>("BlockIdIndices", Codec.INT_ARRAY),
+                    (c, v) -> c.savedBlockIdIndices = v,
+                    c -> c.savedBlockIdIndices)
+            .add()
             .build();
 
+    // bump when the saved block layout changes so older saves rescan instead of misreading
+    private static final int BLOCK_FORMAT_VERSION = 1;
+    private static final long NO_BLOCK_STAMP = 0L;
+    public static final long NO_BLOCK_VERSION = -1L;
+
     private static ComponentType<EntityStore, DungeonComponent> componentType;
 
     @Nonnull
@@ -73,9 +123,47 @@ public class DungeonComponent implements Component<EntityStore> {
     private final List<Ref<EntityStore>> dungeoneerRefs = new ArrayList<>();
     @Nonnull
     private final List<Ref<EntityStore>> spawnerRefs = new ArrayList<>();
+    // membership companion of spawnerRefs, keeps add O(1)
+    @Nonnull
+    private final Set<Ref<EntityStore>> spawnerRefSet = new HashSet<>();
+    // positions of spawnerRefs for the tick system, rebuilt whenever the list changes
+    @Nonnull
+    private final SpawnerGrid spawnerGrid = new SpawnerGrid();
+    // next phase deadlines of the phased traps among spawnerRefs
+    @Nonnull
+    private final TrapTimingWheel trapWheel = new TrapTimingWheel();
     @Nonnull
-    private final List<DungeonBlockEntry> dungeonBlocks = new ArrayList<>();
+    private final DungeonBlockSet dungeonBlocks = new DungeonBlockSet();
     private boolean registered = false;
+    private boolean registering = false;
+
+    // optional box stored with the prefab, relative to this entity
+    @Nullable
+    private int[] prefabBoundsMin;
+    @Nullable
+    private int[] prefabBoundsMax;
+
+    // world-space box the dungeon occupies, minX, minY, minZ, maxX, maxY, maxZ
+    @Nullable
+    private int[] footprint;
+
+    // last completed block scan, kept in packed form so it survives restarts and chunk reloads.
+    // blockStamp covers the format, scan bounds and contents, NO_BLOCK_STAMP means rescan
+    private long blockStamp = NO_BLOCK_STAMP;
+    @Nullable
+    private int[] blockBounds;
+    @Nullable
+    private String[] savedBlockIds;
+    @Nullable
+    private long[] savedBlockPositions;
+    // DungeonBlockIndex region version the saved scan was taken at, runtime only. after a restart
+    // it is NO_BLOCK_VERSION and the saved blocks are checked against the world alone
+    private long savedBlockVersion = NO_BLOCK_VERSION;
+    // savedBlockPositions as a set, built on the first lookup after the array is replaced
+    @Nullable
+    private LongOpenHashSet savedPositionSet;
+    @Nullable
+    private int[] savedBlockIdIndices;
 
     public DungeonComponent() {
     }
@@ -125,6 +213,10 @@ public class DungeonComponent implements Component<EntityStore> {
     }
 
     public void setActive(boolean active) {
+        // deadlines and ran entries of the last run must not carry over into the next activation
+        if (this.active && !active) {
+            trapWheel.clear();
+        }
         this.active = active;
     }
 
@@ -178,6 +270,15 @@ public class DungeonComponent implements Component<EntityStore> {
         this.registered = registered;
     }
 
+    // true while a queued registration job is still working through this dungeon
+    public boolean isRegistering() {
+        return registering;
+    }
+
+    public void setRegistering(boolean registering) {
+        this.registering = registering;
+    }
+
     // Artifact holder (relic carrier)
     @Nullable
     public Ref<EntityStore> getArtifactHolderRef() {
@@ -231,33 +332,114 @@ public class DungeonComponent implements Component<EntityStore> {
     }
 
     public void addSpawnerRef(@Nonnull Ref<EntityStore> ref) {
-        if (!spawnerRefs.contains(ref)) {
+        if (spawnerRefSet.add(ref)) {
             spawnerRefs.add(ref);
+            spawnerGrid.invalidate();
         }
     }
 
+    public boolean hasSpawnerRef(@Nonnull Ref<EntityStore> ref) {
+        return spawnerRefSet.contains(ref);
+    }
+
     public void removeSpawnerRef(@Nonnull Ref<EntityStore> ref) {
-        spawnerRefs.remove(ref);
+        if (spawnerRefSet.remove(ref)) {
+            spawnerRefs.remove(ref);
+            spawnerGrid.invalidate();
+            trapWheel.forget(ref);
+        }
     }
 
     public void clearSpawnerRefs() {
         spawnerRefs.clear();
+        spawnerRefSet.clear();
+        spawnerGrid.invalidate();
+        trapWheel.clear();
+    }
+
+    // call rebuildSpawnerGrid first when isDirty, the grid only knows positions from its last build
+    @Nonnull
+    public SpawnerGrid getSpawnerGrid() {
+        return spawnerGrid;
+    }
+
+    public void rebuildSpawnerGrid(@Nonnull ComponentAccessor<EntityStore> accessor) {
+        spawnerGrid.build(spawnerRefs, accessor);
+    }
+
+    @Nonnull
+    public TrapTimingWheel getTrapWheel() {
+        return trapWheel;
     }
 
     public int getSpawnerCount() {
         return spawnerRefs.size();
     }
 
+    // Prefab bounds, offsets from the dungeon entity
+    @Nullable
+    public Vector3i getPrefabBoundsMin() {
+        return prefabBoundsMin != null && prefabBoundsMin.length == 3
+                ? new Vector3i(prefabBoundsMin[0], prefabBoundsMin[1], prefabBoundsMin[2])
+                : null;
+    }
+
+    @Nullable
+    public Vector3i getPrefabBoundsMax() {
+        return prefabBoundsMax != null && prefabBoundsMax.length == 3
+                ? new Vector3i(prefabBoundsMax[0], prefabBoundsMax[1], prefabBoundsMax[2])
+                : null;
+    }
+
+    public void setPrefabBounds(@Nonnull Vector3i min, @Nonnull Vector3i max) {
+        this.prefabBoundsMin = new int[] { min.getX(), min.getY(), min.getZ() };
+        this.prefabBoundsMax = new int[] { max.getX(), max.getY(), max.getZ() };
+    }
+
+    // Footprint - world-space box computed at registration
+    public boolean hasFootprint() {
+        return footprint != null && footprint.length == 6;
+    }
+
+    @Nullable
+    public Vector3i getFootprintMin() {
+        return hasFootprint() ? new Vector3i(footprint[0], footprint[1], footprint[2]) : null;
+    }
+
+    @Nullable
+    public Vector3i getFootprintMax() {
+        return hasFootprint() ? new Vector3i(footprint[3], footprint[4], footprint[5]) : null;
+    }
+
+    public void setFootprint(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        this.footprint = new int[] { minX, minY, minZ, maxX, maxY, maxZ };
+    }
+
+    public boolean isInFootprint(int x, int y, int z) {
+        return hasFootprint()
+                && x >= footprint[0] && y >= footprint[1] && z >= footprint[2]
+                && x <= footprint[3] && y <= footprint[4] && z <= footprint[5];
+    }
+
     // Dungeon blocks - blocks that change state with dungeon activation
+    // read-only view, prefer getDungeonBlockSet for anything that walks every block
     @Nonnull
     public List<DungeonBlockEntry> getDungeonBlocks() {
-        return Collections.unmodifiableList(dungeonBlocks);
+        return dungeonBlocks.asEntryList();
+    }
+
+    @Nonnull
+    public DungeonBlockSet getDungeonBlockSet() {
+        return dungeonBlocks;
     }
 
     public void addDungeonBlock(@Nonnull DungeonBlockEntry entry) {
-        if (!dungeonBlocks.contains(entry)) {
-            dungeonBlocks.add(entry);
-        }
+        int baseIndex = DungeonBlockTypes.getInstance().internBaseId(entry.getBlockTypeId());
+        dungeonBlocks.add(entry.getX(), entry.getY(), entry.getZ(), baseIndex);
+    }
+
+    public void addDungeonBlock(int x, int y, int z, int baseIndex) {
+        dungeonBlocks.add(x, y, z, baseIndex);
     }
 
     public void clearDungeonBlocks() {
@@ -268,6 +450,132 @@ public class DungeonComponent implements Component<EntityStore> {
         return dungeonBlocks.size();
     }
 
+    // snapshots the current block list as the result of a scan over the given inclusive bounds
+    public void saveDungeonBlocks(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        // base indices are only stable for this run, so the save carries its own id table
+        Int2IntOpenHashMap idIndex = new Int2IntOpenHashMap();
+        idIndex.defaultReturnValue(-1);
+        List<String> ids = new ArrayList<>();
+        long[] positions = new long[dungeonBlocks.size()];
+        int[] idIndices = new int[dungeonBlocks.size()];
+
+        for (int i = 0; i < dungeonBlocks.size(); i++) {
+            int baseIndex = dungeonBlocks.getBaseIndex(i);
+            int index = idIndex.get(baseIndex);
+            if (index == -1) {
+                index = ids.size();
+                ids.add(dungeonBlocks.getBaseId(i));
+                idIndex.put(baseIndex, index);
+            }
+            positions[i] = dungeonBlocks.getPosition(i);
+            idIndices[i] = index;
+        }
+
+        blockBounds = new int[] { minX, minY, minZ, maxX, maxY, maxZ };
+        savedBlockIds = ids.toArray(new String[0]);
+        savedBlockPositions = positions;
+        savedPositionSet = null;
+        savedBlockIdIndices = idIndices;
+        blockStamp = computeBlockStamp(blockBounds, savedBlockIds, savedBlockPositions, savedBlockIdIndices);
+    }
+
+    // refills the block list from the saved snapshot, false if there is none for these bounds or it fails its stamp
+    public boolean restoreDungeonBlocks(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        if (blockStamp == NO_BLOCK_STAMP || savedBlockIds == null
+                || savedBlockPositions == null || savedBlockIdIndices == null
+                || savedBlockPositions.length != savedBlockIdIndices.length) {
+            return false;
+        }
+        if (!Arrays.equals(blockBounds, new int[] { minX, minY, minZ, maxX, maxY, maxZ })) {
+            return false;
+        }
+        if (computeBlockStamp(blockBounds, savedBlockIds, savedBlockPositions, savedBlockIdIndices) != blockStamp) {
+            return false;
+        }
+
+        DungeonBlockTypes types = DungeonBlockTypes.getInstance();
+        int[] baseIndices = new int[savedBlockIds.length];
+        for (int i = 0; i < savedBlockIds.length; i++) {
+            baseIndices[i] = types.internBaseId(savedBlockIds[i]);
+        }
+
+        dungeonBlocks.clear();
+        for (int i = 0; i < savedBlockPositions.length; i++) {
+            int index = savedBlockIdIndices[i];
+            if (index < 0 || index >= baseIndices.length) {
+                dungeonBlocks.clear();
+                return false;
+            }
+            dungeonBlocks.add(savedBlockPositions[i], baseIndices[index]);
+        }
+        return true;
+    }
+
+    // the region changed since the last scan, next registration rescans
+    public void invalidateSavedBlocks() {
+        blockStamp = NO_BLOCK_STAMP;
+        savedBlockVersion = NO_BLOCK_VERSION;
+    }
+
+    public long getSavedBlockVersion() {
+        return savedBlockVersion;
+    }
+
+    public void setSavedBlockVersion(long version) {
+        this.savedBlockVersion = version;
+    }
+
+    public boolean hasSavedBlocks() {
+        return blockStamp != NO_BLOCK_STAMP;
+    }
+
+    // true if a change at this position could alter the saved scan
+    public boolean affectsSavedBlocks(int x, int y, int z, boolean dungeonBlock) {
+        if (blockStamp == NO_BLOCK_STAMP || blockBounds == null) {
+            return false;
+        }
+        if (x < blockBounds[0] || y < blockBounds[1] || z < blockBounds[2]
+                || x > blockBounds[3] || y > blockBounds[4] || z > blockBounds[5]) {
+            return false;
+        }
+        if (dungeonBlock || savedBlockPositions == null) {
+            return true;
+        }
+
+        long packed = PackedBlockPos.pack(x, y, z);
+        if (!dungeonBlocks.isEmpty()) {
+            return dungeonBlocks.contains(packed);
+        }
+        if (savedPositionSet == null) {
+            savedPositionSet = new LongOpenHashSet(savedBlockPositions);
+        }
+        return savedPositionSet.contains(packed);
+    }
+
+    private static long computeBlockStamp(@Nonnull int[] bounds, @Nonnull String[] ids,
+            @Nonnull long[] positions, @Nonnull int[] idIndices) {
+        long hash = 0xcbf29ce484222325L;
+        hash = mix(hash, BLOCK_FORMAT_VERSION);
+        for (int bound : bounds) {
+            hash = mix(hash, bound);
+        }
+        for (String id : ids) {
+            hash = mix(hash, id.hashCode());
+        }
+        for (int i = 0; i < positions.length; i++) {
+            hash = mix(hash, positions[i]);
+            hash = mix(hash, idIndices[i]);
+        }
+        // never collide with the "no stamp" marker
+        return hash == NO_BLOCK_STAMP ? 1L : hash;
+    }
+
+    private static long mix(long hash, long value) {
+        hash ^= value;
+        hash *= 0x100000001b3L;
+        return hash ^ (hash >>> 29);
+    }
+
     // reset state
     public void reset() {
         this.setActive(false);
@@ -282,6 +590,7 @@ public class DungeonComponent implements Component<EntityStore> {
         this.clearDungeonBlocks();
         this.setEntranceRef(null);
         this.setRegistered(false);
+        this.setRegistering(false);
     }
 
     @Nonnull
@@ -303,8 +612,20 @@ public class DungeonComponent implements Component<EntityStore> {
         copy.entranceRef = this.entranceRef;
         copy.dungeoneerRefs.addAll(this.dungeoneerRefs);
         copy.spawnerRefs.addAll(this.spawnerRefs);
+        copy.spawnerRefSet.addAll(this.spawnerRefSet);
         copy.dungeonBlocks.addAll(this.dungeonBlocks);
         copy.registered = this.registered;
+        copy.registering = this.registering;
+        // saved arrays are replaced, never written in place, so sharing them is safe
+        copy.prefabBoundsMin = this.prefabBoundsMin;
+        copy.prefabBoundsMax = this.prefabBoundsMax;
+        copy.footprint = this.footprint;
+        copy.blockStamp = this.blockStamp;
+        copy.savedBlockVersion = this.savedBlockVersion;
+        copy.blockBounds = this.blockBounds;
+        copy.savedBlockIds = this.savedBlockIds;
+        copy.savedBlockPositions = this.savedBlockPositions;
+        copy.savedBlockIdIndices = this.savedBlockIdIndices;
         return copy;
     }
 }
@@ -13,6 +13,7 @@ import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.UUID;
 
 public class DungeoneerComponent implements Component<EntityStore> {
 
@@ -43,6 +44,10 @@ public class DungeoneerComponent implements Component<EntityStore> {
                     (c, v) -> c.originalRespawnPoints = v,
                     c -> c.originalRespawnPoints)
             .add()
+            .append(new KeyedCodec<>("DungeonHandle", Codec.STRING),
+                    (c, v) -> c.dungeonHandle = v,
+                    c -> c.dungeonHandle)
+            .add()
             .build();
 
     private static ComponentType<EntityStore, DungeoneerComponent> componentType;
@@ -61,6 +66,10 @@ public class DungeoneerComponent implements Component<EntityStore> {
     @Nullable
     private Ref<EntityStore> dungeonRef;
 
+    // UUID of the dungeon controller, survives reconnects and restarts where dungeonRef does not
+    @Nullable
+    private String dungeonHandle;
+
     public DungeoneerComponent() {
     }
 
@@ -116,6 +125,22 @@ public class DungeoneerComponent implements Component<EntityStore> {
         this.dungeonRef = dungeonRef;
     }
 
+    @Nullable
+    public UUID getDungeonHandle() {
+        if (dungeonHandle == null || dungeonHandle.isEmpty()) {
+            return null;
+        }
+        try {
+            return UUID.fromString(dungeonHandle);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public void setDungeonHandle(@Nullable UUID handle) {
+        this.dungeonHandle = handle != null ? handle.toString() : null;
+    }
+
     @Nullable
     public PlayerRespawnPointData[] getOriginalRespawnPoints() {
         return originalRespawnPoints;
@@ -136,6 +161,7 @@ public class DungeoneerComponent implements Component<EntityStore> {
         copy.spawnZ = this.spawnZ;
         copy.originalRespawnPoints = this.originalRespawnPoints;
         copy.dungeonRef = this.dungeonRef;
+        copy.dungeonHandle = this.dungeonHandle;
         return copy;
     }
 }
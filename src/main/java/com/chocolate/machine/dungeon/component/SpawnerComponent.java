@@ -1,5 +1,7 @@
 package com.chocolate.machine.dungeon.component;
 
+import com.chocolate.machine.dungeon.spawnable.Spawnable;
+import com.chocolate.machine.dungeon.spawnable.SpawnableRegistry;
 import com.hypixel.hytale.codec.Codec;
 import com.hypixel.hytale.codec.KeyedCodec;
 import com.hypixel.hytale.codec.builder.BuilderCodec;
@@ -9,6 +11,7 @@ import com.hypixel.hytale.component.ComponentType;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 public class SpawnerComponent implements Component<EntityStore> {
 
@@ -28,6 +31,22 @@ public class SpawnerComponent implements Component<EntityStore> {
     private String executionId = "";
 
     private boolean isActive = false;
+
+    // resolved from executionId on first use so ticks skip the registry lookup
+    @Nullable
+    private Spawnable spawnable;
+
+    // set by DungeonTickSystem for spawners near a dungeoneer, consumed by their SpawnerActionSystem
+    private boolean tickDue = false;
+    // time the due tick covers, the frame dt or everything since a phased trap last ran
+    private float dueDelta = 0f;
+    // reported by phased traps after they run, read back by DungeonTickSystem to reschedule them
+    private float nextPhaseDelay = 0f;
+    // set on every activation change so a parked phased trap runs again
+    private boolean phaseWake = false;
+    // mid-range ticks skipped so far and the dt they covered
+    private int deferredTicks = 0;
+    private float deferredDelta = 0f;
     
     public SpawnerComponent() {
     }
@@ -51,6 +70,49 @@ public class SpawnerComponent implements Component<EntityStore> {
 
     public void setExecutionId(@Nonnull String executionId) {
         this.executionId = executionId;
+        this.spawnable = null;
+    }
+
+    @Nullable
+    public Spawnable getSpawnable() {
+        Spawnable resolved = spawnable;
+        if (resolved == null) {
+            resolved = SpawnableRegistry.getInstance().get(executionId);
+            spawnable = resolved;
+        }
+        return resolved;
+    }
+
+    public void markTickDue(float delta) {
+        tickDue = true;
+        dueDelta = delta;
+    }
+
+    public float getDueDelta() {
+        return dueDelta;
+    }
+
+    public void defer(float dt) {
+        deferredTicks++;
+        deferredDelta += dt;
+    }
+
+    public int getDeferredTicks() {
+        return deferredTicks;
+    }
+
+    public float drainDeferredDelta() {
+        float delta = deferredDelta;
+        deferredTicks = 0;
+        deferredDelta = 0f;
+        return delta;
+    }
+
+    // true once per markTickDue
+    public boolean consumeTickDue() {
+        boolean due = tickDue;
+        tickDue = false;
+        return due;
     }
 
     public boolean isActive() {
@@ -59,6 +121,25 @@ public class SpawnerComponent implements Component<EntityStore> {
 
     public void setActive(boolean active) {
         isActive = active;
+        phaseWake = true;
+    }
+
+    // seconds until the trap's next phase transition, negative when it has nothing left to do
+    public void setNextPhaseDelay(float delay) {
+        nextPhaseDelay = delay;
+    }
+
+    // falls back to 0 so a trap that failed to report is simply run again next tick
+    public float consumeNextPhaseDelay() {
+        float delay = nextPhaseDelay;
+        nextPhaseDelay = 0f;
+        return delay;
+    }
+
+    public boolean consumePhaseWake() {
+        boolean wake = phaseWake;
+        phaseWake = false;
+        return wake;
     }
 
     @Nonnull
@@ -0,0 +1,125 @@
+package com.chocolate.machine.dungeon.component;
+
+import com.chocolate.machine.utils.PackedBlockPos;
+import com.hypixel.hytale.component.ComponentAccessor;
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.math.vector.Vector3d;
+import com.hypixel.hytale.server.core.modules.entity.component.TransformComponent;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import javax.annotation.Nonnull;
+import java.util.BitSet;
+import java.util.List;
+
+// spawner positions of one dungeon bucketed into cubic cells. spawners are numbered densely in build
+// order so a query can mark them in a BitSet. built at registration, rebuilt lazily after the
+// spawner list changes. traps never move, so positions are taken once per build
+public class SpawnerGrid {
+
+    // same as the default near tick radius, so a near query reads at most 3x3x3 cells
+    private static final double CELL_SIZE = 50.0;
+
+    private final ObjectArrayList<Ref<EntityStore>> refs = new ObjectArrayList<>();
+    private final DoubleArrayList coordinates = new DoubleArrayList();
+    private final Long2ObjectOpenHashMap<IntArrayList> cells = new Long2ObjectOpenHashMap<>();
+    private final Object2IntOpenHashMap<Ref<EntityStore>> slots = new Object2IntOpenHashMap<>();
+    private boolean dirty = true;
+
+    public SpawnerGrid() {
+        slots.defaultReturnValue(-1);
+    }
+
+    public void invalidate() {
+        dirty = true;
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public void build(@Nonnull List<Ref<EntityStore>> spawnerRefs, @Nonnull ComponentAccessor<EntityStore> accessor) {
+        refs.clear();
+        coordinates.clear();
+        cells.clear();
+        slots.clear();
+
+        for (int i = 0; i < spawnerRefs.size(); i++) {
+            Ref<EntityStore> spawnerRef = spawnerRefs.get(i);
+            if (!spawnerRef.isValid()) continue;
+
+            TransformComponent transform = accessor.getComponent(spawnerRef, TransformComponent.getComponentType());
+            if (transform == null) continue;
+
+            Vector3d position = transform.getPosition();
+            int slot = refs.size();
+            refs.add(spawnerRef);
+            slots.put(spawnerRef, slot);
+            coordinates.add(position.getX());
+            coordinates.add(position.getY());
+            coordinates.add(position.getZ());
+
+            long key = PackedBlockPos.pack(cellOf(position.getX()), cellOf(position.getY()), cellOf(position.getZ()));
+            IntArrayList bucket = cells.get(key);
+            if (bucket == null) {
+                bucket = new IntArrayList();
+                cells.put(key, bucket);
+            }
+            bucket.add(slot);
+        }
+        dirty = false;
+    }
+
+    public int size() {
+        return refs.size();
+    }
+
+    @Nonnull
+    public Ref<EntityStore> getRef(int slot) {
+        return refs.get(slot);
+    }
+
+    // -1 when the spawner was not part of the last build
+    public int getSlot(@Nonnull Ref<EntityStore> spawnerRef) {
+        return slots.getInt(spawnerRef);
+    }
+
+    // sets the slot of every spawner within radius of position, only the cells the sphere touches are read
+    public void collect(@Nonnull Vector3d position, double radius, @Nonnull BitSet out) {
+        double radiusSq = radius * radius;
+        int minX = cellOf(position.getX() - radius);
+        int minY = cellOf(position.getY() - radius);
+        int minZ = cellOf(position.getZ() - radius);
+        int maxX = cellOf(position.getX() + radius);
+        int maxY = cellOf(position.getY() + radius);
+        int maxZ = cellOf(position.getZ() + radius);
+
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    IntArrayList bucket = cells.get(PackedBlockPos.pack(x, y, z));
+                    if (bucket == null) continue;
+
+                    for (int i = 0; i < bucket.size(); i++) {
+                        int slot = bucket.getInt(i);
+                        double dx = coordinates.getDouble(slot * 3) - position.getX();
+                        double dy = coordinates.getDouble(slot * 3 + 1) - position.getY();
+                        double dz = coordinates.getDouble(slot * 3 + 2) - position.getZ();
+                        if (dx * dx + dy * dy + dz * dz <= radiusSq) {
+                            out.set(slot);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static int cellOf(double coordinate) {
+        return (int) Math.floor(coordinate / CELL_SIZE);
+    }
+}
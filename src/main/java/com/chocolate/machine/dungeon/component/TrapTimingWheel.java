@@ -0,0 +1,193 @@
+package com.chocolate.machine.dungeon.component;
+
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+
+// phase deadlines of one dungeon's phased traps (hammer, saw blade, press). a trap runs its state machine,
+// reports how long until its next transition, and sits in the wheel until then instead of being
+// ticked every frame. three levels of 64 slots at 50ms cover ~3.6 hours, longer delays are re-cascaded.
+// only ever touched from the dungeon's own DungeonTickSystem tick
+public class TrapTimingWheel {
+
+    private static final float RESOLUTION = 0.05f;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 3;
+    private static final long MAX_SPAN = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    private static final int IDLE = 0;
+    private static final int SCHEDULED = 1;
+    private static final int PARKED = 2;
+
+    private static final class Entry {
+        final Ref<EntityStore> ref;
+        long deadline;
+        double lastRun;
+        int state = IDLE;
+        boolean ran;
+
+        Entry(@Nonnull Ref<EntityStore> ref) {
+            this.ref = ref;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private final ObjectArrayList<Entry>[][] wheel = new ObjectArrayList[LEVELS][SLOTS];
+    private final Object2ObjectOpenHashMap<Ref<EntityStore>, Entry> entries = new Object2ObjectOpenHashMap<>();
+    private final ObjectArrayList<Entry> ranThisTick = new ObjectArrayList<>();
+
+    private double now = 0.0;
+    private long currentTick = 0L;
+
+    public TrapTimingWheel() {
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                wheel[level][slot] = new ObjectArrayList<>();
+            }
+        }
+    }
+
+    // waiting in the wheel, its state machine has nothing to do before the deadline
+    public boolean isScheduled(@Nonnull Ref<EntityStore> ref) {
+        Entry entry = entries.get(ref);
+        return entry != null && entry.state == SCHEDULED;
+    }
+
+    // stopped until something reactivates the trap
+    public boolean isParked(@Nonnull Ref<EntityStore> ref) {
+        Entry entry = entries.get(ref);
+        return entry != null && entry.state == PARKED;
+    }
+
+    // seconds since the trap last ran, what it has to catch up on when its deadline fires
+    public float getElapsed(@Nonnull Ref<EntityStore> ref) {
+        Entry entry = entries.get(ref);
+        return entry != null ? (float) (now - entry.lastRun) : 0f;
+    }
+
+    // the trap runs this tick, rescheduleRan picks up its next delay on the following one
+    public void markRan(@Nonnull Ref<EntityStore> ref) {
+        Entry entry = entries.get(ref);
+        if (entry == null) {
+            entry = new Entry(ref);
+            entries.put(ref, entry);
+        }
+        entry.state = IDLE;
+        entry.lastRun = now;
+        if (!entry.ran) {
+            entry.ran = true;
+            ranThisTick.add(entry);
+        }
+    }
+
+    public boolean hasRun(@Nonnull Ref<EntityStore> ref) {
+        Entry entry = entries.get(ref);
+        return entry != null && entry.ran;
+    }
+
+    public int getRanCount() {
+        return ranThisTick.size();
+    }
+
+    @Nonnull
+    public Ref<EntityStore> getRan(int i) {
+        return ranThisTick.get(i).ref;
+    }
+
+    // delay counts from when the trap ran. negative parks it, zero runs it again on the next tick
+    public void rescheduleRan(int i, float delay) {
+        Entry entry = ranThisTick.get(i);
+        entry.ran = false;
+        if (entries.get(entry.ref) != entry) {
+            return;
+        }
+        if (delay < 0f) {
+            entry.state = PARKED;
+            return;
+        }
+        entry.deadline = Math.max(currentTick + 1, (long) Math.ceil((entry.lastRun + delay) / RESOLUTION));
+        entry.state = SCHEDULED;
+        insert(entry);
+    }
+
+    public void clearRan() {
+        for (int i = 0; i < ranThisTick.size(); i++) {
+            ranThisTick.get(i).ran = false;
+        }
+        ranThisTick.clear();
+    }
+
+    // moves the clock forward and adds every trap whose deadline passed. fired traps are idle until
+    // they run again
+    public void advance(float dt, @Nonnull List<Ref<EntityStore>> fired) {
+        now += dt;
+        long targetTick = (long) Math.floor(now / RESOLUTION);
+        while (currentTick < targetTick) {
+            currentTick++;
+            cascade();
+
+            ObjectArrayList<Entry> slot = wheel[0][(int) (currentTick & SLOT_MASK)];
+            for (int i = 0; i < slot.size(); i++) {
+                Entry entry = slot.get(i);
+                if (entry.state != SCHEDULED || entries.get(entry.ref) != entry) continue;
+                entry.state = IDLE;
+                fired.add(entry.ref);
+            }
+            slot.clear();
+        }
+    }
+
+    // the entry stays in its slot and is dropped when that slot is reached
+    public void forget(@Nonnull Ref<EntityStore> ref) {
+        entries.remove(ref);
+    }
+
+    public void clear() {
+        entries.clear();
+        ranThisTick.clear();
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                wheel[level][slot].clear();
+            }
+        }
+    }
+
+    // at every wrap of a lower level, pull the next slot of the level above down. top level first so
+    // whatever it drops into a lower level's current slot is pulled down again right after
+    private void cascade() {
+        for (int level = LEVELS - 1; level >= 1; level--) {
+            if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+                continue;
+            }
+            ObjectArrayList<Entry> slot = wheel[level][(int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK)];
+            if (slot.isEmpty()) continue;
+
+            Entry[] pending = slot.toArray(new Entry[0]);
+            slot.clear();
+            for (Entry entry : pending) {
+                if (entry.state == SCHEDULED && entries.get(entry.ref) == entry) {
+                    insert(entry);
+                }
+            }
+        }
+    }
+
+    private void insert(@Nonnull Entry entry) {
+        long deadline = Math.max(entry.deadline, currentTick);
+        long delta = Math.min(deadline - currentTick, MAX_SPAN);
+        long target = currentTick + delta;
+
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        wheel[level][(int) ((target >>> (SLOT_BITS * level)) & SLOT_MASK)].add(entry);
+    }
+}
@@ -10,7 +10,7 @@ import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class HydraulicPressActionComponent implements Component<EntityStore> {
 
@@ -50,7 +50,6 @@ public class HydraulicPressActionComponent implements Component<EntityStore> {
     }
 
     private static ComponentType<EntityStore, HydraulicPressActionComponent> componentType;
-    private static final Random RANDOM = new Random();
 
     // runtime state
     @Nullable
@@ -127,7 +126,7 @@ public class HydraulicPressActionComponent implements Component<EntityStore> {
         this.phase = phase;
         this.phaseTimer = 0f;
         if (phase == PressPhase.COOLDOWN) {
-            this.currentCooldownDuration = minCooldown + RANDOM.nextFloat() * (maxCooldown - minCooldown);
+            this.currentCooldownDuration = minCooldown + ThreadLocalRandom.current().nextFloat() * (maxCooldown - minCooldown);
         }
     }
 
@@ -183,7 +183,7 @@ public class PedestalBlockInteraction extends SimpleBlockInteraction {
         if (existingDungeoneer == null) {
             Vector3d spawnPosition = dungeon.getSpawnPosition();
             existingDungeoneer = new DungeoneerComponent(dungeon.getDungeonId(), spawnPosition);
-            existingDungeoneer.setDungeonRef(dungeonRef);
+            DungeonFinder.bindDungeoneer(playerRef, existingDungeoneer, dungeonRef, commandBuffer);
             commandBuffer.addComponent(playerRef, DungeoneerComponent.getComponentType(), existingDungeoneer);
             dungeon.addDungeoneerRef(playerRef);
         }
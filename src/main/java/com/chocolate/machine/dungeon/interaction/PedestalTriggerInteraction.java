@@ -8,6 +8,7 @@ import com.chocolate.machine.dungeon.DungeonModule;
 import com.chocolate.machine.dungeon.DungeonService;
 import com.chocolate.machine.dungeon.component.DungeonComponent;
 import com.chocolate.machine.dungeon.component.DungeoneerComponent;
+import com.chocolate.machine.utils.DungeonFinder;
 import com.hypixel.hytale.codec.builder.BuilderCodec;
 import com.hypixel.hytale.component.CommandBuffer;
 import com.hypixel.hytale.component.Ref;
@@ -149,7 +150,7 @@ public class PedestalTriggerInteraction extends SimpleInstantInteraction {
         if (existingDungeoneer == null) {
             Vector3d spawnPosition = dungeon.getSpawnPosition();
             existingDungeoneer = new DungeoneerComponent(dungeon.getDungeonId(), spawnPosition);
-            existingDungeoneer.setDungeonRef(dungeonRef);
+            DungeonFinder.bindDungeoneer(playerRef, existingDungeoneer, dungeonRef, commandBuffer);
             commandBuffer.addComponent(playerRef, DungeoneerComponent.getComponentType(), existingDungeoneer);
             dungeon.addDungeoneerRef(playerRef);
         }
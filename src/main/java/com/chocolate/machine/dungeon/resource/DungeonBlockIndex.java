@@ -0,0 +1,304 @@
+package com.chocolate.machine.dungeon.resource;
+
+import com.chocolate.machine.dungeon.DungeonBlockScanner;
+import com.chocolate.machine.dungeon.DungeonBlockTypes;
+import com.chocolate.machine.dungeon.component.DungeonComponent;
+import com.chocolate.machine.utils.PackedBlockPos;
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.Resource;
+import com.hypixel.hytale.component.ResourceType;
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.math.util.ChunkUtil;
+import com.hypixel.hytale.math.vector.Vector3i;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.chunk.WorldChunk;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.List;
+
+// per-world index of CM_ block positions, bucketed by chunk.
+// chunks inside a registered dungeon's footprint are indexed when they load and kept current by block
+// place/break, so registration only needs a range query. chunks missing from the index are scanned on
+// demand, and entries of chunks are dropped when the chunk unloads so the index only ever holds loaded ones
+public class DungeonBlockIndex implements Resource<EntityStore> {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    private static ResourceType<EntityStore, DungeonBlockIndex> resourceType;
+
+    public static void setResourceType(ResourceType<EntityStore, DungeonBlockIndex> type) {
+        resourceType = type;
+    }
+
+    public static ResourceType<EntityStore, DungeonBlockIndex> getResourceType() {
+        return resourceType;
+    }
+
+    private final DungeonBlockScanner scanner = new DungeonBlockScanner();
+
+    // chunk index -> packed block position -> base id index. chunks without CM_ blocks map to an empty set
+    private final Long2ObjectOpenHashMap<Long2IntOpenHashMap> chunks = new Long2ObjectOpenHashMap<>();
+
+    // chunk index -> change counter and content hash of its CM_ blocks. both outlive eviction, so a
+    // chunk that comes back with different blocks than it left with still counts as changed
+    private final Long2IntOpenHashMap versions = new Long2IntOpenHashMap();
+    private final Long2LongOpenHashMap contentHashes = new Long2LongOpenHashMap();
+
+    // chunk index -> number of dungeon footprints covering it, only these are indexed on load
+    private final Long2IntOpenHashMap footprintChunks = new Long2IntOpenHashMap();
+
+    // controller -> the footprint box (minX, minZ, maxX, maxZ) it holds in footprintChunks, so a
+    // controller can be untracked by ref alone once its component is gone
+    private final Object2ObjectOpenHashMap<Ref<EntityStore>, int[]> footprintsByRef = new Object2ObjectOpenHashMap<>();
+
+    public boolean isInFootprint(long chunkIndex) {
+        return footprintChunks.get(chunkIndex) > 0;
+    }
+
+    // replaces whatever footprint the controller held before
+    public void trackFootprint(@Nonnull Ref<EntityStore> ref, @Nonnull DungeonComponent dungeon) {
+        Vector3i min = dungeon.getFootprintMin();
+        Vector3i max = dungeon.getFootprintMax();
+        if (min == null || max == null) {
+            untrackFootprint(ref);
+            return;
+        }
+        int[] box = { min.getX(), min.getZ(), max.getX(), max.getZ() };
+        int[] previous = footprintsByRef.put(ref, box);
+        if (previous != null) {
+            if (Arrays.equals(previous, box)) {
+                return;
+            }
+            removeFootprint(previous);
+        }
+        addFootprint(box);
+    }
+
+    public void untrackFootprint(@Nonnull Ref<EntityStore> ref) {
+        int[] box = footprintsByRef.remove(ref);
+        if (box != null) {
+            removeFootprint(box);
+        }
+    }
+
+    private void addFootprint(@Nonnull int[] box) {
+        for (int chunkX = ChunkUtil.chunkCoordinate(box[0]); chunkX <= ChunkUtil.chunkCoordinate(box[2]); chunkX++) {
+            for (int chunkZ = ChunkUtil.chunkCoordinate(box[1]); chunkZ <= ChunkUtil.chunkCoordinate(box[3]); chunkZ++) {
+                footprintChunks.addTo(ChunkUtil.indexChunk(chunkX, chunkZ), 1);
+            }
+        }
+    }
+
+    // chunks no dungeon covers any more are dropped right away
+    private void removeFootprint(@Nonnull int[] box) {
+        for (int chunkX = ChunkUtil.chunkCoordinate(box[0]); chunkX <= ChunkUtil.chunkCoordinate(box[2]); chunkX++) {
+            for (int chunkZ = ChunkUtil.chunkCoordinate(box[1]); chunkZ <= ChunkUtil.chunkCoordinate(box[3]); chunkZ++) {
+                long chunkIndex = ChunkUtil.indexChunk(chunkX, chunkZ);
+                if (footprintChunks.addTo(chunkIndex, -1) <= 1) {
+                    footprintChunks.remove(chunkIndex);
+                    chunks.remove(chunkIndex);
+                }
+            }
+        }
+    }
+
+    // sum of the change counters of every chunk in the range. counters only go up, so any CM_ block
+    // change the index sees inside the range gives a different sum
+    public long getRegionVersion(int minX, int minZ, int maxX, int maxZ) {
+        long version = 0;
+        for (int chunkX = ChunkUtil.chunkCoordinate(minX); chunkX <= ChunkUtil.chunkCoordinate(maxX); chunkX++) {
+            for (int chunkZ = ChunkUtil.chunkCoordinate(minZ); chunkZ <= ChunkUtil.chunkCoordinate(maxZ); chunkZ++) {
+                version += versions.get(ChunkUtil.indexChunk(chunkX, chunkZ));
+            }
+        }
+        return version;
+    }
+
+    public boolean isIndexed(long chunkIndex) {
+        return chunks.containsKey(chunkIndex);
+    }
+
+    public void onChunkLoad(@Nonnull WorldChunk chunk) {
+        indexChunk(chunk);
+    }
+
+    // loaded chunks outside every footprint are left to collectChunks to scan if they are ever asked for
+    public int indexChunk(@Nonnull WorldChunk chunk) {
+        if (!isInFootprint(ChunkUtil.indexChunk(chunk.getX(), chunk.getZ()))) {
+            return 0;
+        }
+        return install(scanner.scanChunk(chunk));
+    }
+
+    // the chunk left memory, it is rescanned when it comes back
+    public void onChunkUnload(long chunkIndex) {
+        chunks.remove(chunkIndex);
+    }
+
+    // a chunk seen for the first time only sets its hash, later installs bump the counter if it differs
+    private int install(@Nonnull DungeonBlockScanner.ChunkBlocks scanned) {
+        Long2IntOpenHashMap blocks = new Long2IntOpenHashMap(scanned.size());
+        blocks.defaultReturnValue(DungeonBlockTypes.NOT_DUNGEON_BLOCK);
+        long hash = 0;
+        for (int i = 0; i < scanned.size(); i++) {
+            blocks.put(scanned.getPosition(i), scanned.getBaseIndex(i));
+            hash ^= entryHash(scanned.getPosition(i), scanned.getBaseIndex(i));
+        }
+        long chunkIndex = scanned.getChunkIndex();
+        chunks.put(chunkIndex, blocks);
+        if (contentHashes.containsKey(chunkIndex) && contentHashes.get(chunkIndex) != hash) {
+            versions.addTo(chunkIndex, 1);
+        }
+        contentHashes.put(chunkIndex, hash);
+        return blocks.size();
+    }
+
+    // xor of the entry hashes, so a single add or remove updates it in place
+    private static long entryHash(long packed, int baseIndex) {
+        long hash = (packed ^ ((long) baseIndex << 48)) * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 29);
+    }
+
+    public void invalidateChunk(long chunkIndex) {
+        chunks.remove(chunkIndex);
+    }
+
+    public void invalidateRange(int minX, int minZ, int maxX, int maxZ) {
+        for (int chunkX = ChunkUtil.chunkCoordinate(minX); chunkX <= ChunkUtil.chunkCoordinate(maxX); chunkX++) {
+            for (int chunkZ = ChunkUtil.chunkCoordinate(minZ); chunkZ <= ChunkUtil.chunkCoordinate(maxZ); chunkZ++) {
+                chunks.remove(ChunkUtil.indexChunk(chunkX, chunkZ));
+            }
+        }
+    }
+
+    // re-reads a single block after a place/break, only matters for chunks we already track
+    public void refreshBlock(@Nonnull World world, int x, int y, int z) {
+        long chunkIndex = ChunkUtil.indexChunkFromBlock(x, z);
+        Long2IntOpenHashMap blocks = chunks.get(chunkIndex);
+        if (blocks == null) {
+            return;
+        }
+
+        WorldChunk chunk = world.getChunkIfInMemory(chunkIndex);
+        if (chunk == null) {
+            return;
+        }
+
+        long packed = PackedBlockPos.pack(x, y, z);
+        int baseIndex = DungeonBlockTypes.getInstance().getBaseIndex(chunk.getBlock(x, y, z));
+        int previous = baseIndex == DungeonBlockTypes.NOT_DUNGEON_BLOCK
+                ? blocks.remove(packed)
+                : blocks.put(packed, baseIndex);
+        if (previous == baseIndex) {
+            return;
+        }
+
+        long hash = contentHashes.get(chunkIndex);
+        if (previous != DungeonBlockTypes.NOT_DUNGEON_BLOCK) {
+            hash ^= entryHash(packed, previous);
+        }
+        if (baseIndex != DungeonBlockTypes.NOT_DUNGEON_BLOCK) {
+            hash ^= entryHash(packed, baseIndex);
+        }
+        contentHashes.put(chunkIndex, hash);
+        versions.addTo(chunkIndex, 1);
+    }
+
+    // inclusive bounds. unindexed chunks that are loaded get indexed here (in parallel when
+    // parallelism > 1), unloaded ones are skipped
+    public int collect(
+            @Nonnull World world,
+            int minX, int minY, int minZ,
+            int maxX, int maxY, int maxZ,
+            int parallelism,
+            @Nonnull DungeonBlockScanner.BlockConsumer consumer) {
+
+        LongArrayList chunkIndices = new LongArrayList();
+        for (int chunkX = ChunkUtil.chunkCoordinate(minX); chunkX <= ChunkUtil.chunkCoordinate(maxX); chunkX++) {
+            for (int chunkZ = ChunkUtil.chunkCoordinate(minZ); chunkZ <= ChunkUtil.chunkCoordinate(maxZ); chunkZ++) {
+                chunkIndices.add(ChunkUtil.indexChunk(chunkX, chunkZ));
+            }
+        }
+        return collectChunks(world, chunkIndices, minX, minY, minZ, maxX, maxY, maxZ, parallelism, consumer);
+    }
+
+    // same as collect but limited to the given chunks, lets callers work through a footprint in slices
+    public int collectChunks(
+            @Nonnull World world,
+            @Nonnull LongList chunkIndices,
+            int minX, int minY, int minZ,
+            int maxX, int maxY, int maxZ,
+            int parallelism,
+            @Nonnull DungeonBlockScanner.BlockConsumer consumer) {
+
+        List<WorldChunk> unindexed = new ObjectArrayList<>();
+        for (int i = 0; i < chunkIndices.size(); i++) {
+            long chunkIndex = chunkIndices.getLong(i);
+            if (chunks.containsKey(chunkIndex)) {
+                continue;
+            }
+            WorldChunk chunk = world.getChunkIfInMemory(chunkIndex);
+            if (chunk != null) {
+                unindexed.add(chunk);
+            }
+        }
+
+        if (!unindexed.isEmpty()) {
+            for (DungeonBlockScanner.ChunkBlocks scanned : scanner.scanChunks(unindexed,
+                    Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE,
+                    Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, parallelism)) {
+                install(scanned);
+            }
+            LOGGER.atFine().log("Block index scanned %d unindexed chunks", unindexed.size());
+        }
+
+        int found = 0;
+        for (int i = 0; i < chunkIndices.size(); i++) {
+            Long2IntOpenHashMap blocks = chunks.get(chunkIndices.getLong(i));
+            if (blocks == null) {
+                continue;
+            }
+
+            for (Long2IntMap.Entry entry : blocks.long2IntEntrySet()) {
+                long packed = entry.getLongKey();
+                int x = PackedBlockPos.unpackX(packed);
+                int y = PackedBlockPos.unpackY(packed);
+                int z = PackedBlockPos.unpackZ(packed);
+                if (x < minX || x > maxX || y < minY || y > maxY || z < minZ || z > maxZ) {
+                    continue;
+                }
+                consumer.accept(x, y, z, entry.getIntValue());
+                found++;
+            }
+        }
+
+        return found;
+    }
+
+    @Override
+    public Resource<EntityStore> clone() {
+        DungeonBlockIndex copy = new DungeonBlockIndex();
+        copy.footprintChunks.putAll(footprintChunks);
+        copy.footprintsByRef.putAll(footprintsByRef);
+        copy.versions.putAll(versions);
+        copy.contentHashes.putAll(contentHashes);
+        for (Long2ObjectMap.Entry<Long2IntOpenHashMap> entry : chunks.long2ObjectEntrySet()) {
+            Long2IntOpenHashMap blocks = new Long2IntOpenHashMap(entry.getValue());
+            blocks.defaultReturnValue(DungeonBlockTypes.NOT_DUNGEON_BLOCK);
+            copy.chunks.put(entry.getLongKey(), blocks);
+        }
+        return copy;
+    }
+}
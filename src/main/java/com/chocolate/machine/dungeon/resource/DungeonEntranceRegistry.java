@@ -0,0 +1,59 @@
+package com.chocolate.machine.dungeon.resource;
+
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.Resource;
+import com.hypixel.hytale.component.ResourceType;
+import com.hypixel.hytale.math.vector.Vector3d;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+// live dungeon entrances keyed by the dungeon id they lead to, kept current by DungeonEntranceRegistrySystem
+public class DungeonEntranceRegistry implements Resource<EntityStore> {
+
+    private static ResourceType<EntityStore, DungeonEntranceRegistry> resourceType;
+
+    public static void setResourceType(ResourceType<EntityStore, DungeonEntranceRegistry> type) {
+        resourceType = type;
+    }
+
+    public static ResourceType<EntityStore, DungeonEntranceRegistry> getResourceType() {
+        return resourceType;
+    }
+
+    private final PositionalIndex entrances = new PositionalIndex();
+
+    public void add(@Nonnull Ref<EntityStore> ref, @Nullable String dungeonId, @Nonnull Vector3d position) {
+        entrances.add(ref, dungeonId != null ? dungeonId : "", position);
+    }
+
+    public void remove(@Nonnull Ref<EntityStore> ref) {
+        entrances.remove(ref);
+    }
+
+    public int size() {
+        return entrances.size();
+    }
+
+    // entrance for the dungeon id, the nearest one when several share it
+    @Nullable
+    public Ref<EntityStore> findNearest(@Nonnull String dungeonId, @Nonnull Vector3d near) {
+        return entrances.findById(dungeonId, near);
+    }
+
+    // nearest entrance of any id within radius
+    @Nullable
+    public Ref<EntityStore> findNearest(@Nonnull Vector3d position, double radius) {
+        return entrances.findNearest(position, radius);
+    }
+
+    @Override
+    public Resource<EntityStore> clone() {
+        DungeonEntranceRegistry copy = new DungeonEntranceRegistry();
+        for (PositionalIndex.Entry entry : entrances.entries()) {
+            copy.add(entry.ref, entry.dungeonId, entry.position);
+        }
+        return copy;
+    }
+}
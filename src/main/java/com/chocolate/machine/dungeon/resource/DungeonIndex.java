@@ -0,0 +1,120 @@
+package com.chocolate.machine.dungeon.resource;
+
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.Resource;
+import com.hypixel.hytale.component.ResourceType;
+import com.hypixel.hytale.math.vector.Vector3d;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.UUID;
+
+// live dungeon controllers by dungeon id, controller UUID and coarse cell, plus which dungeon each
+// dungeoneer belongs to. kept current by DungeonIndexSystem.
+// lookups only ever look at dungeon controllers instead of every entity in range
+public class DungeonIndex implements Resource<EntityStore> {
+
+    private static ResourceType<EntityStore, DungeonIndex> resourceType;
+
+    public static void setResourceType(ResourceType<EntityStore, DungeonIndex> type) {
+        resourceType = type;
+    }
+
+    public static ResourceType<EntityStore, DungeonIndex> getResourceType() {
+        return resourceType;
+    }
+
+    private final PositionalIndex controllers = new PositionalIndex();
+
+    // controller UUID -> live controller and back, and player UUID -> controller UUID for players inside a dungeon
+    private final Object2ObjectOpenHashMap<UUID, Ref<EntityStore>> byHandle = new Object2ObjectOpenHashMap<>();
+    private final Object2ObjectOpenHashMap<Ref<EntityStore>, UUID> handles = new Object2ObjectOpenHashMap<>();
+    private final Object2ObjectOpenHashMap<UUID, UUID> playerDungeons = new Object2ObjectOpenHashMap<>();
+
+    public void add(@Nonnull Ref<EntityStore> ref, @Nonnull String dungeonId, @Nonnull Vector3d position,
+            @Nullable UUID handle) {
+        remove(ref);
+
+        controllers.add(ref, dungeonId, position);
+        if (handle != null) {
+            byHandle.put(handle, ref);
+            handles.put(ref, handle);
+        }
+    }
+
+    public void remove(@Nonnull Ref<EntityStore> ref) {
+        controllers.remove(ref);
+
+        UUID handle = handles.remove(ref);
+        if (handle != null && ref.equals(byHandle.get(handle))) {
+            byHandle.remove(handle);
+        }
+    }
+
+    public int size() {
+        return controllers.size();
+    }
+
+    @Nullable
+    public Ref<EntityStore> findByHandle(@Nonnull UUID handle) {
+        Ref<EntityStore> ref = byHandle.get(handle);
+        return ref != null && ref.isValid() ? ref : null;
+    }
+
+    public void setPlayerDungeon(@Nonnull UUID playerUuid, @Nullable UUID handle) {
+        if (handle == null) {
+            playerDungeons.remove(playerUuid);
+        } else {
+            playerDungeons.put(playerUuid, handle);
+        }
+    }
+
+    @Nullable
+    public UUID getPlayerDungeonHandle(@Nonnull UUID playerUuid) {
+        return playerDungeons.get(playerUuid);
+    }
+
+    @Nullable
+    public Ref<EntityStore> findPlayerDungeon(@Nonnull UUID playerUuid) {
+        UUID handle = playerDungeons.get(playerUuid);
+        return handle != null ? findByHandle(handle) : null;
+    }
+
+    // closest controller carrying the id, ids are normally unique so this is usually the only one
+    @Nullable
+    public Ref<EntityStore> findById(@Nonnull String dungeonId, @Nonnull Vector3d near) {
+        return dungeonId.isEmpty() ? null : controllers.findById(dungeonId, near);
+    }
+
+    @Nullable
+    public Ref<EntityStore> findNearest(@Nonnull Vector3d position, double radius) {
+        return controllers.findNearest(position, radius);
+    }
+
+    @Nonnull
+    public List<Ref<EntityStore>> findInRange(@Nonnull Vector3d position, double radius,
+            @Nonnull List<Ref<EntityStore>> out) {
+        return controllers.findInRange(position.getX(), position.getY(), position.getZ(), radius, out);
+    }
+
+    // coordinate form for hot callers that would otherwise allocate a probe vector per call
+    @Nonnull
+    public List<Ref<EntityStore>> findInRange(double x, double y, double z, double radius,
+            @Nonnull List<Ref<EntityStore>> out) {
+        return controllers.findInRange(x, y, z, radius, out);
+    }
+
+    @Override
+    public Resource<EntityStore> clone() {
+        DungeonIndex copy = new DungeonIndex();
+        for (PositionalIndex.Entry entry : controllers.entries()) {
+            copy.add(entry.ref, entry.dungeonId, entry.position, handles.get(entry.ref));
+        }
+        copy.playerDungeons.putAll(playerDungeons);
+        return copy;
+    }
+}
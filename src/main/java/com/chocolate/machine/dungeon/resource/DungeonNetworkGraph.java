@@ -0,0 +1,497 @@
+package com.chocolate.machine.dungeon.resource;
+
+import com.chocolate.machine.utils.PackedBlockPos;
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.Resource;
+import com.hypixel.hytale.component.ResourceType;
+import com.hypixel.hytale.math.vector.Vector3d;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.List;
+
+// spawners, entrances and dungeon controllers of the world with the networks they form, kept current by
+// DungeonNetworkSystem. spawners within LINK_RADIUS of each other share a network, controllers and
+// entrances never link anything and hang off whichever networks are within LINK_RADIUS of them.
+// additions merge networks right away, removals only mark the network dirty and it is split on the next query
+public class DungeonNetworkGraph implements Resource<EntityStore> {
+
+    public static final int SPAWNER = 1;
+    public static final int DUNGEON = 1 << 1;
+    public static final int ENTRANCE = 1 << 2;
+
+    // same hop distance registration has always used to find a dungeon's spawners
+    public static final double LINK_RADIUS = 200.0;
+
+    private static final int NETWORK_KINDS = SPAWNER;
+    private static final int ATTACHED_KINDS = DUNGEON | ENTRANCE;
+    private static final int NO_NODE = -1;
+    private static final int NO_COMPONENT = -1;
+    private static final int UNASSIGNED = -2;
+
+    private static ResourceType<EntityStore, DungeonNetworkGraph> resourceType;
+
+    public static void setResourceType(ResourceType<EntityStore, DungeonNetworkGraph> type) {
+        resourceType = type;
+    }
+
+    public static ResourceType<EntityStore, DungeonNetworkGraph> getResourceType() {
+        return resourceType;
+    }
+
+    private final Object2IntOpenHashMap<Ref<EntityStore>> nodeIds = new Object2IntOpenHashMap<>();
+
+    // per node, indexed by node id. freed ids are reused
+    private final ObjectArrayList<Ref<EntityStore>> refs = new ObjectArrayList<>();
+    private final IntArrayList kinds = new IntArrayList();
+    private final IntArrayList components = new IntArrayList();
+    private final DoubleArrayList xs = new DoubleArrayList();
+    private final DoubleArrayList ys = new DoubleArrayList();
+    private final DoubleArrayList zs = new DoubleArrayList();
+    private final LongArrayList cells = new LongArrayList();
+    private final IntArrayList freeIds = new IntArrayList();
+
+    // LINK_RADIUS sized cells -> node ids
+    private final Long2ObjectOpenHashMap<IntArrayList> grid = new Long2ObjectOpenHashMap<>();
+
+    // network id -> network node ids, attached controllers and entrances are found through the grid
+    private final Int2ObjectOpenHashMap<IntArrayList> networks = new Int2ObjectOpenHashMap<>();
+    private final IntOpenHashSet dirty = new IntOpenHashSet();
+    private int nextNetworkId;
+
+    // query scratch
+    private final IntArrayList queue = new IntArrayList();
+    private final IntArrayList found = new IntArrayList();
+    private int[] visitStamps = new int[64];
+    private int generation;
+
+    public DungeonNetworkGraph() {
+        nodeIds.defaultReturnValue(NO_NODE);
+    }
+
+    public void add(@Nonnull Ref<EntityStore> ref, int kind, @Nonnull Vector3d position) {
+        int node = nodeIds.getInt(ref);
+        if (node == NO_NODE) {
+            node = allocate(ref, position);
+        }
+
+        int previous = kinds.getInt(node);
+        kinds.set(node, previous | kind);
+        if ((previous & NETWORK_KINDS) == 0 && (kind & NETWORK_KINDS) != 0) {
+            link(node);
+        }
+    }
+
+    public void remove(@Nonnull Ref<EntityStore> ref, int kind) {
+        int node = nodeIds.getInt(ref);
+        if (node == NO_NODE) {
+            return;
+        }
+
+        int previous = kinds.getInt(node);
+        int remaining = previous & ~kind;
+        kinds.set(node, remaining);
+        if ((previous & NETWORK_KINDS) != 0 && (remaining & NETWORK_KINDS) == 0) {
+            unlink(node);
+        }
+        if (remaining == 0) {
+            release(node);
+        }
+    }
+
+    public boolean contains(@Nonnull Ref<EntityStore> ref, int kind) {
+        int node = nodeIds.getInt(ref);
+        return node != NO_NODE && (kinds.getInt(node) & kind) != 0;
+    }
+
+    public int size() {
+        return nodeIds.size();
+    }
+
+    // a spawner, or a tracked controller or entrance with a spawner within LINK_RADIUS
+    public boolean hasNetwork(@Nonnull Ref<EntityStore> ref) {
+        int node = nodeIds.getInt(ref);
+        if (node == NO_NODE) {
+            return false;
+        }
+        if ((kinds.getInt(node) & NETWORK_KINDS) != 0) {
+            return true;
+        }
+
+        found.clear();
+        neighbours(node, found);
+        boolean reached = !found.isEmpty();
+        found.clear();
+        return reached;
+    }
+
+    // everything of the given kinds in the network of a spawner. a controller or entrance is only the
+    // key to look up the networks within LINK_RADIUS of it, see collectNear
+    @Nonnull
+    public List<Ref<EntityStore>> collectNetwork(@Nonnull Ref<EntityStore> ref, int kind,
+            @Nonnull List<Ref<EntityStore>> out) {
+        int node = nodeIds.getInt(ref);
+        if (node == NO_NODE) {
+            return out;
+        }
+
+        newGeneration();
+        found.clear();
+        if ((kinds.getInt(node) & NETWORK_KINDS) == 0) {
+            double x = xs.getDouble(node);
+            double y = ys.getDouble(node);
+            double z = zs.getDouble(node);
+            addNetworksNear(x, y, z);
+            return emit(kind, x, y, z, out);
+        }
+
+        addNetwork(resolve(node));
+        return emit(kind, out);
+    }
+
+    // everything of the given kinds in the networks reaching within LINK_RADIUS of a position, plus
+    // controllers and entrances within LINK_RADIUS of the position itself. the position never joins
+    // two networks, they are only collected together
+    @Nonnull
+    public List<Ref<EntityStore>> collectNear(@Nonnull Vector3d position, int kind,
+            @Nonnull List<Ref<EntityStore>> out) {
+        newGeneration();
+        found.clear();
+
+        double x = position.getX();
+        double y = position.getY();
+        double z = position.getZ();
+        addNetworksNear(x, y, z);
+        return emit(kind, x, y, z, out);
+    }
+
+    private void addNetworksNear(double x, double y, double z) {
+        int cellX = cellOf(x);
+        int cellY = cellOf(y);
+        int cellZ = cellOf(z);
+        double radiusSq = LINK_RADIUS * LINK_RADIUS;
+
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    IntArrayList bucket = grid.get(PackedBlockPos.pack(cellX + dx, cellY + dy, cellZ + dz));
+                    if (bucket == null) continue;
+                    for (int i = 0; i < bucket.size(); i++) {
+                        int other = bucket.getInt(i);
+                        if ((kinds.getInt(other) & NETWORK_KINDS) == 0
+                                || distanceSq(other, x, y, z) > radiusSq) {
+                            continue;
+                        }
+                        if (!isVisited(other)) {
+                            addNetwork(resolve(other));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private int allocate(@Nonnull Ref<EntityStore> ref, @Nonnull Vector3d position) {
+        int node;
+        long cell = PackedBlockPos.pack(cellOf(position.getX()), cellOf(position.getY()), cellOf(position.getZ()));
+        if (!freeIds.isEmpty()) {
+            node = freeIds.popInt();
+            refs.set(node, ref);
+            kinds.set(node, 0);
+            components.set(node, NO_COMPONENT);
+            xs.set(node, position.getX());
+            ys.set(node, position.getY());
+            zs.set(node, position.getZ());
+            cells.set(node, cell);
+        } else {
+            node = refs.size();
+            refs.add(ref);
+            kinds.add(0);
+            components.add(NO_COMPONENT);
+            xs.add(position.getX());
+            ys.add(position.getY());
+            zs.add(position.getZ());
+            cells.add(cell);
+        }
+
+        IntArrayList bucket = grid.get(cell);
+        if (bucket == null) {
+            bucket = new IntArrayList();
+            grid.put(cell, bucket);
+        }
+        bucket.add(node);
+        nodeIds.put(ref, node);
+        return node;
+    }
+
+    private void release(int node) {
+        long cell = cells.getLong(node);
+        IntArrayList bucket = grid.get(cell);
+        if (bucket != null) {
+            bucket.rem(node);
+            if (bucket.isEmpty()) {
+                grid.remove(cell);
+            }
+        }
+        nodeIds.removeInt(refs.get(node));
+        refs.set(node, null);
+        freeIds.add(node);
+    }
+
+    // joins the node with every network within reach, the smaller networks are relabelled into the largest
+    private void link(int node) {
+        int network = nextNetworkId++;
+        IntArrayList members = new IntArrayList();
+        members.add(node);
+        networks.put(network, members);
+        components.set(node, network);
+
+        found.clear();
+        neighbours(node, found);
+        for (int i = 0; i < found.size(); i++) {
+            int other = components.getInt(found.getInt(i));
+            if (other != network) {
+                network = merge(network, other);
+            }
+        }
+    }
+
+    private int merge(int a, int b) {
+        IntArrayList membersA = networks.get(a);
+        IntArrayList membersB = networks.get(b);
+        if (membersA.size() < membersB.size()) {
+            int swap = a;
+            a = b;
+            b = swap;
+            IntArrayList swapMembers = membersA;
+            membersA = membersB;
+            membersB = swapMembers;
+        }
+
+        for (int i = 0; i < membersB.size(); i++) {
+            components.set(membersB.getInt(i), a);
+        }
+        membersA.addAll(membersB);
+        networks.remove(b);
+        if (dirty.remove(b)) {
+            dirty.add(a);
+        }
+        return a;
+    }
+
+    private void unlink(int node) {
+        int network = components.getInt(node);
+        components.set(node, NO_COMPONENT);
+        IntArrayList members = networks.get(network);
+        if (members == null) {
+            return;
+        }
+        members.rem(node);
+        if (members.isEmpty()) {
+            networks.remove(network);
+            dirty.remove(network);
+        } else {
+            dirty.add(network);
+        }
+    }
+
+    // splits a network that lost nodes into whatever pieces are still connected
+    private int resolve(int node) {
+        int network = components.getInt(node);
+        if (!dirty.remove(network)) {
+            return network;
+        }
+
+        IntArrayList members = networks.remove(network);
+        for (int i = 0; i < members.size(); i++) {
+            components.set(members.getInt(i), UNASSIGNED);
+        }
+
+        IntArrayList neighbourBuffer = new IntArrayList();
+        for (int i = 0; i < members.size(); i++) {
+            int seed = members.getInt(i);
+            if (components.getInt(seed) != UNASSIGNED) {
+                continue;
+            }
+
+            int piece = nextNetworkId++;
+            IntArrayList pieceMembers = new IntArrayList();
+            networks.put(piece, pieceMembers);
+            components.set(seed, piece);
+            queue.clear();
+            queue.add(seed);
+
+            for (int head = 0; head < queue.size(); head++) {
+                int current = queue.getInt(head);
+                pieceMembers.add(current);
+                neighbourBuffer.clear();
+                neighbours(current, neighbourBuffer);
+                for (int j = 0; j < neighbourBuffer.size(); j++) {
+                    int other = neighbourBuffer.getInt(j);
+                    if (components.getInt(other) == UNASSIGNED) {
+                        components.set(other, piece);
+                        queue.add(other);
+                    }
+                }
+            }
+        }
+        return components.getInt(node);
+    }
+
+    // network nodes within LINK_RADIUS of a node, the node itself excluded
+    private void neighbours(int node, @Nonnull IntArrayList out) {
+        double x = xs.getDouble(node);
+        double y = ys.getDouble(node);
+        double z = zs.getDouble(node);
+        int cellX = cellOf(x);
+        int cellY = cellOf(y);
+        int cellZ = cellOf(z);
+        double radiusSq = LINK_RADIUS * LINK_RADIUS;
+
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    IntArrayList bucket = grid.get(PackedBlockPos.pack(cellX + dx, cellY + dy, cellZ + dz));
+                    if (bucket == null) continue;
+                    for (int i = 0; i < bucket.size(); i++) {
+                        int other = bucket.getInt(i);
+                        if (other != node && (kinds.getInt(other) & NETWORK_KINDS) != 0
+                                && distanceSq(other, x, y, z) <= radiusSq) {
+                            out.add(other);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void addNetwork(int network) {
+        IntArrayList members = networks.get(network);
+        if (members == null) {
+            return;
+        }
+        for (int i = 0; i < members.size(); i++) {
+            int member = members.getInt(i);
+            if (visit(member)) {
+                found.add(member);
+            }
+        }
+    }
+
+
+    // network members of the requested kinds, then controllers and entrances within reach of any member
+    @Nonnull
+    private List<Ref<EntityStore>> emit(int kind, @Nonnull List<Ref<EntityStore>> out) {
+        int networkCount = found.size();
+        for (int i = 0; i < networkCount; i++) {
+            int member = found.getInt(i);
+            if ((kinds.getInt(member) & kind) != 0) {
+                out.add(refs.get(member));
+            }
+        }
+
+        if ((kind & ATTACHED_KINDS) == 0) {
+            return out;
+        }
+        for (int i = 0; i < networkCount; i++) {
+            int member = found.getInt(i);
+            attachNear(xs.getDouble(member), ys.getDouble(member), zs.getDouble(member), kind, out);
+        }
+        return out;
+    }
+
+    // same, with whatever is attached around the lookup position as well
+    @Nonnull
+    private List<Ref<EntityStore>> emit(int kind, double x, double y, double z, @Nonnull List<Ref<EntityStore>> out) {
+        emit(kind, out);
+        if ((kind & ATTACHED_KINDS) != 0) {
+            attachNear(x, y, z, kind, out);
+        }
+        return out;
+    }
+
+    private void attachNear(double x, double y, double z, int kind, @Nonnull List<Ref<EntityStore>> out) {
+        int cellX = cellOf(x);
+        int cellY = cellOf(y);
+        int cellZ = cellOf(z);
+        double radiusSq = LINK_RADIUS * LINK_RADIUS;
+
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    IntArrayList bucket = grid.get(PackedBlockPos.pack(cellX + dx, cellY + dy, cellZ + dz));
+                    if (bucket == null) continue;
+                    for (int j = 0; j < bucket.size(); j++) {
+                        int other = bucket.getInt(j);
+                        int otherKinds = kinds.getInt(other);
+                        // anything that is also a network member was already emitted above
+                        if ((otherKinds & ATTACHED_KINDS & kind) == 0 || (otherKinds & NETWORK_KINDS) != 0
+                                || distanceSq(other, x, y, z) > radiusSq || !visit(other)) {
+                            continue;
+                        }
+                        out.add(refs.get(other));
+                    }
+                }
+            }
+        }
+    }
+
+    private void newGeneration() {
+        generation++;
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(visitStamps, 0);
+            generation = 1;
+        }
+    }
+
+    private boolean isVisited(int node) {
+        return node < visitStamps.length && visitStamps[node] == generation;
+    }
+
+    private boolean visit(int node) {
+        if (node >= visitStamps.length) {
+            visitStamps = Arrays.copyOf(visitStamps, Math.max(node + 1, visitStamps.length * 2));
+        }
+        if (visitStamps[node] == generation) {
+            return false;
+        }
+        visitStamps[node] = generation;
+        return true;
+    }
+
+    private double distanceSq(int node, double x, double y, double z) {
+        double dx = xs.getDouble(node) - x;
+        double dy = ys.getDouble(node) - y;
+        double dz = zs.getDouble(node) - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static int cellOf(double coordinate) {
+        return (int) Math.floor(coordinate / LINK_RADIUS);
+    }
+
+    @Override
+    public Resource<EntityStore> clone() {
+        DungeonNetworkGraph copy = new DungeonNetworkGraph();
+        Vector3d position = new Vector3d(0, 0, 0);
+        for (int node = 0; node < refs.size(); node++) {
+            Ref<EntityStore> ref = refs.get(node);
+            if (ref == null) continue;
+            position.x = xs.getDouble(node);
+            position.y = ys.getDouble(node);
+            position.z = zs.getDouble(node);
+            copy.add(ref, kinds.getInt(node), position);
+        }
+        return copy;
+    }
+}
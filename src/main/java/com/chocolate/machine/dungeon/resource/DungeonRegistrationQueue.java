@@ -0,0 +1,68 @@
+package com.chocolate.machine.dungeon.resource;
+
+import com.chocolate.machine.dungeon.DungeonRegistrationJob;
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.Resource;
+import com.hypixel.hytale.component.ResourceType;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// registrations waiting to be worked through, oldest first
+public class DungeonRegistrationQueue implements Resource<EntityStore> {
+
+    private static ResourceType<EntityStore, DungeonRegistrationQueue> resourceType;
+
+    public static void setResourceType(ResourceType<EntityStore, DungeonRegistrationQueue> type) {
+        resourceType = type;
+    }
+
+    public static ResourceType<EntityStore, DungeonRegistrationQueue> getResourceType() {
+        return resourceType;
+    }
+
+    private final Map<Ref<EntityStore>, DungeonRegistrationJob> jobs = new LinkedHashMap<>();
+
+    public void add(@Nonnull DungeonRegistrationJob job) {
+        jobs.put(job.getDungeonRef(), job);
+    }
+
+    @Nullable
+    public DungeonRegistrationJob get(@Nonnull Ref<EntityStore> dungeonRef) {
+        return jobs.get(dungeonRef);
+    }
+
+    @Nullable
+    public DungeonRegistrationJob remove(@Nonnull Ref<EntityStore> dungeonRef) {
+        return jobs.remove(dungeonRef);
+    }
+
+    // oldest job whose dungeon still exists, stale ones are dropped on the way
+    @Nullable
+    public DungeonRegistrationJob peek() {
+        Iterator<DungeonRegistrationJob> it = jobs.values().iterator();
+        while (it.hasNext()) {
+            DungeonRegistrationJob job = it.next();
+            if (job.getDungeonRef().isValid()) {
+                return job;
+            }
+            it.remove();
+        }
+        return null;
+    }
+
+    public boolean isEmpty() {
+        return jobs.isEmpty();
+    }
+
+    @Override
+    public Resource<EntityStore> clone() {
+        DungeonRegistrationQueue copy = new DungeonRegistrationQueue();
+        copy.jobs.putAll(this.jobs);
+        return copy;
+    }
+}
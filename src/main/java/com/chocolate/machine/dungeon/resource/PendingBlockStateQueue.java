@@ -0,0 +1,134 @@
+package com.chocolate.machine.dungeon.resource;
+
+import com.chocolate.machine.dungeon.DungeonBlockTypes;
+import com.chocolate.machine.dungeon.component.DungeonBlockSet;
+import com.chocolate.machine.utils.PackedBlockPos;
+import com.hypixel.hytale.component.Resource;
+import com.hypixel.hytale.component.ResourceType;
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.math.util.ChunkUtil;
+import com.hypixel.hytale.math.vector.Vector3i;
+import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
+import com.hypixel.hytale.server.core.universe.world.chunk.WorldChunk;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import javax.annotation.Nonnull;
+
+// block state changes for chunks that weren't loaded when a dungeon toggled, keyed by chunk.
+// only the latest state per block is kept, so repeated toggles collapse into one change applied on load
+public class PendingBlockStateQueue implements Resource<EntityStore> {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    private static ResourceType<EntityStore, PendingBlockStateQueue> resourceType;
+
+    public static void setResourceType(ResourceType<EntityStore, PendingBlockStateQueue> type) {
+        resourceType = type;
+    }
+
+    public static ResourceType<EntityStore, PendingBlockStateQueue> getResourceType() {
+        return resourceType;
+    }
+
+    // chunk index -> packed block position -> state
+    private final Long2ObjectOpenHashMap<Long2ObjectOpenHashMap<String>> chunks = new Long2ObjectOpenHashMap<>();
+
+    public void put(int x, int y, int z, @Nonnull String state) {
+        long chunkIndex = ChunkUtil.indexChunkFromBlock(x, z);
+        Long2ObjectOpenHashMap<String> states = chunks.get(chunkIndex);
+        if (states == null) {
+            states = new Long2ObjectOpenHashMap<>();
+            chunks.put(chunkIndex, states);
+        }
+        states.put(PackedBlockPos.pack(x, y, z), state);
+    }
+
+    // a direct change wins over anything still queued for the block
+    public void remove(int x, int y, int z) {
+        long chunkIndex = ChunkUtil.indexChunkFromBlock(x, z);
+        Long2ObjectOpenHashMap<String> states = chunks.get(chunkIndex);
+        if (states != null && states.remove(PackedBlockPos.pack(x, y, z)) != null && states.isEmpty()) {
+            chunks.remove(chunkIndex);
+        }
+    }
+
+    // drops everything queued for the dungeon's blocks, returns how many entries went
+    public int removeAll(@Nonnull DungeonBlockSet blocks) {
+        if (chunks.isEmpty()) {
+            return 0;
+        }
+
+        int removed = 0;
+        for (int i = 0; i < blocks.size(); i++) {
+            long chunkIndex = ChunkUtil.indexChunkFromBlock(blocks.getX(i), blocks.getZ(i));
+            Long2ObjectOpenHashMap<String> states = chunks.get(chunkIndex);
+            if (states != null && states.remove(blocks.getPosition(i)) != null) {
+                removed++;
+                if (states.isEmpty()) {
+                    chunks.remove(chunkIndex);
+                }
+            }
+        }
+        return removed;
+    }
+
+    public boolean hasPending(long chunkIndex) {
+        return chunks.containsKey(chunkIndex);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Long2ObjectOpenHashMap<String> states : chunks.values()) {
+            size += states.size();
+        }
+        return size;
+    }
+
+    // world thread only, applies and forgets everything queued for the chunk
+    public int drainChunk(@Nonnull WorldChunk chunk) {
+        Long2ObjectOpenHashMap<String> states = chunks.remove(ChunkUtil.indexChunk(chunk.getX(), chunk.getZ()));
+        if (states == null) {
+            return 0;
+        }
+
+        DungeonBlockTypes types = DungeonBlockTypes.getInstance();
+        int changed = 0;
+        for (Long2ObjectMap.Entry<String> entry : states.long2ObjectEntrySet()) {
+            long packed = entry.getLongKey();
+            int x = PackedBlockPos.unpackX(packed);
+            int y = PackedBlockPos.unpackY(packed);
+            int z = PackedBlockPos.unpackZ(packed);
+            String state = entry.getValue();
+
+            // the CM_ block may have been replaced while the chunk was away
+            String current = types.getStateForType(chunk.getBlock(x, y, z));
+            if (current == null || state.equals(current)) {
+                continue;
+            }
+
+            BlockType blockType = chunk.getBlockType(x, y, z);
+            if (blockType == null || blockType.isUnknown()) {
+                continue;
+            }
+
+            chunk.setBlockInteractionState(new Vector3i(x, y, z), blockType, state);
+            changed++;
+        }
+
+        LOGGER.atFine().log("Applied %d of %d deferred block states in chunk (%d, %d)",
+                changed, states.size(), chunk.getX(), chunk.getZ());
+        return changed;
+    }
+
+    @Override
+    public Resource<EntityStore> clone() {
+        PendingBlockStateQueue copy = new PendingBlockStateQueue();
+        for (Long2ObjectMap.Entry<Long2ObjectOpenHashMap<String>> entry : chunks.long2ObjectEntrySet()) {
+            copy.chunks.put(entry.getLongKey(), new Long2ObjectOpenHashMap<>(entry.getValue()));
+        }
+        return copy;
+    }
+}
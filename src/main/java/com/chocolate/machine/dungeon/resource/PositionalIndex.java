@@ -0,0 +1,210 @@
+package com.chocolate.machine.dungeon.resource;
+
+import com.chocolate.machine.utils.PackedBlockPos;
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.math.vector.Vector3d;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectCollection;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+
+// entities that sit still, by dungeon id and by coarse cell. shared by DungeonIndex and
+// DungeonEntranceRegistry, which only add their own lookups on top
+final class PositionalIndex {
+
+    private static final double CELL_SIZE = 128.0;
+
+    static final class Entry {
+        final Ref<EntityStore> ref;
+        final String dungeonId;
+        final Vector3d position;
+        final long cell;
+
+        Entry(@Nonnull Ref<EntityStore> ref, @Nonnull String dungeonId, @Nonnull Vector3d position) {
+            this.ref = ref;
+            this.dungeonId = dungeonId;
+            this.position = position.clone();
+            this.cell = cellKey(position);
+        }
+    }
+
+    private final Object2ObjectOpenHashMap<Ref<EntityStore>, Entry> entries = new Object2ObjectOpenHashMap<>();
+    private final Object2ObjectOpenHashMap<String, ObjectArrayList<Entry>> byId = new Object2ObjectOpenHashMap<>();
+    private final Long2ObjectOpenHashMap<ObjectArrayList<Entry>> cells = new Long2ObjectOpenHashMap<>();
+
+    @Nonnull
+    Entry add(@Nonnull Ref<EntityStore> ref, @Nonnull String dungeonId, @Nonnull Vector3d position) {
+        remove(ref);
+
+        Entry entry = new Entry(ref, dungeonId, position);
+        entries.put(ref, entry);
+        byId.computeIfAbsent(dungeonId, id -> new ObjectArrayList<>()).add(entry);
+        ObjectArrayList<Entry> bucket = cells.get(entry.cell);
+        if (bucket == null) {
+            bucket = new ObjectArrayList<>();
+            cells.put(entry.cell, bucket);
+        }
+        bucket.add(entry);
+        return entry;
+    }
+
+    @Nullable
+    Entry remove(@Nonnull Ref<EntityStore> ref) {
+        Entry entry = entries.remove(ref);
+        if (entry == null) {
+            return null;
+        }
+
+        ObjectArrayList<Entry> sameId = byId.get(entry.dungeonId);
+        if (sameId != null) {
+            sameId.remove(entry);
+            if (sameId.isEmpty()) {
+                byId.remove(entry.dungeonId);
+            }
+        }
+        ObjectArrayList<Entry> bucket = cells.get(entry.cell);
+        if (bucket != null) {
+            bucket.remove(entry);
+            if (bucket.isEmpty()) {
+                cells.remove(entry.cell);
+            }
+        }
+        return entry;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    @Nonnull
+    ObjectCollection<Entry> entries() {
+        return entries.values();
+    }
+
+    // closest live entry carrying the id, ids are normally unique so this is usually the only one
+    @Nullable
+    Ref<EntityStore> findById(@Nonnull String dungeonId, @Nonnull Vector3d near) {
+        ObjectArrayList<Entry> sameId = byId.get(dungeonId);
+        if (sameId == null) {
+            return null;
+        }
+
+        Ref<EntityStore> nearest = null;
+        double nearestDistance = Double.MAX_VALUE;
+        for (int i = 0; i < sameId.size(); i++) {
+            Entry entry = sameId.get(i);
+            if (!entry.ref.isValid()) continue;
+            double distance = near.distanceSquaredTo(entry.position);
+            if (distance < nearestDistance) {
+                nearestDistance = distance;
+                nearest = entry.ref;
+            }
+        }
+        return nearest;
+    }
+
+    @Nullable
+    Ref<EntityStore> findNearest(@Nonnull Vector3d position, double radius) {
+        Ref<EntityStore> nearest = null;
+        double nearestDistance = radius * radius;
+
+        if (useLinearScan(radius)) {
+            for (Entry entry : entries.values()) {
+                double distance = position.distanceSquaredTo(entry.position);
+                if (distance <= nearestDistance && entry.ref.isValid()) {
+                    nearestDistance = distance;
+                    nearest = entry.ref;
+                }
+            }
+            return nearest;
+        }
+
+        int range = cellRange(radius);
+        int cellX = cellOf(position.getX());
+        int cellY = cellOf(position.getY());
+        int cellZ = cellOf(position.getZ());
+        for (int dx = -range; dx <= range; dx++) {
+            for (int dy = -range; dy <= range; dy++) {
+                for (int dz = -range; dz <= range; dz++) {
+                    ObjectArrayList<Entry> bucket = cells.get(PackedBlockPos.pack(cellX + dx, cellY + dy, cellZ + dz));
+                    if (bucket == null) continue;
+                    for (int i = 0; i < bucket.size(); i++) {
+                        Entry entry = bucket.get(i);
+                        double distance = position.distanceSquaredTo(entry.position);
+                        if (distance <= nearestDistance && entry.ref.isValid()) {
+                            nearestDistance = distance;
+                            nearest = entry.ref;
+                        }
+                    }
+                }
+            }
+        }
+        return nearest;
+    }
+
+    @Nonnull
+    List<Ref<EntityStore>> findInRange(double x, double y, double z, double radius,
+            @Nonnull List<Ref<EntityStore>> out) {
+        double radiusSq = radius * radius;
+
+        if (useLinearScan(radius)) {
+            for (Entry entry : entries.values()) {
+                if (distanceSquared(entry.position, x, y, z) <= radiusSq && entry.ref.isValid()) {
+                    out.add(entry.ref);
+                }
+            }
+            return out;
+        }
+
+        int range = cellRange(radius);
+        int cellX = cellOf(x);
+        int cellY = cellOf(y);
+        int cellZ = cellOf(z);
+        for (int dx = -range; dx <= range; dx++) {
+            for (int dy = -range; dy <= range; dy++) {
+                for (int dz = -range; dz <= range; dz++) {
+                    ObjectArrayList<Entry> bucket = cells.get(PackedBlockPos.pack(cellX + dx, cellY + dy, cellZ + dz));
+                    if (bucket == null) continue;
+                    for (int i = 0; i < bucket.size(); i++) {
+                        Entry entry = bucket.get(i);
+                        if (distanceSquared(entry.position, x, y, z) <= radiusSq && entry.ref.isValid()) {
+                            out.add(entry.ref);
+                        }
+                    }
+                }
+            }
+        }
+        return out;
+    }
+
+    private static double distanceSquared(@Nonnull Vector3d position, double x, double y, double z) {
+        double dx = position.getX() - x;
+        double dy = position.getY() - y;
+        double dz = position.getZ() - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    // with only a handful of entries, walking them all beats probing hundreds of empty cells
+    private boolean useLinearScan(double radius) {
+        int span = cellRange(radius) * 2 + 1;
+        return entries.size() <= span * span * span;
+    }
+
+    private static int cellRange(double radius) {
+        return (int) Math.ceil(radius / CELL_SIZE);
+    }
+
+    private static int cellOf(double coordinate) {
+        return (int) Math.floor(coordinate / CELL_SIZE);
+    }
+
+    private static long cellKey(@Nonnull Vector3d position) {
+        return PackedBlockPos.pack(cellOf(position.getX()), cellOf(position.getY()), cellOf(position.getZ()));
+    }
+}
@@ -32,6 +32,18 @@ public interface Spawnable {
             @Nonnull Ref<EntityStore> spawnerRef,
             @Nonnull ComponentAccessor<EntityStore> componentAccessor);
 
+    // true when a SpawnerActionSystem ticks this spawnable's action component straight from its
+    // archetype chunk. DungeonTickSystem then only marks the spawner due instead of calling tick
+    default boolean hasTickSystem() {
+        return false;
+    }
+
+    // true when the tick system reports the next phase deadline after every run, so the spawner
+    // waits in its dungeon's TrapTimingWheel in between. implies hasTickSystem
+    default boolean hasPhaseSchedule() {
+        return false;
+    }
+
     default void tick(
             float dt,
             @Nonnull Ref<EntityStore> spawnerRef,
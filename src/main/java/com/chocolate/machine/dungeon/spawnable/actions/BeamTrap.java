@@ -53,8 +53,8 @@ public class BeamTrap implements Spawnable {
     private static final String DAMAGE_CAUSE_NAME = "Environment";
     private static final String ENVIRONMENT_SOURCE_TYPE = "beam_trap";
 
-    private int damageCauseIndex = -1;
-    private int soundIndex = -1;
+    private volatile int damageCauseIndex = -1;
+    private volatile int soundIndex = -1;
 
     private int getDamageCauseIndex() {
         if (damageCauseIndex < 0) {
@@ -175,6 +175,11 @@ public class BeamTrap implements Spawnable {
         }
     }
 
+    @Override
+    public boolean hasTickSystem() {
+        return true;
+    }
+
     @Override
     public void tick(
             float dt,
@@ -184,7 +189,18 @@ public class BeamTrap implements Spawnable {
         LaserBeamComponent state = commandBuffer.getComponent(
                 spawnerRef, LaserBeamComponent.getComponentType());
 
-        if (state == null || !state.isActive()) {
+        if (state != null) {
+            tick(dt, spawnerRef, state, commandBuffer);
+        }
+    }
+
+    public void tick(
+            float dt,
+            @Nonnull Ref<EntityStore> spawnerRef,
+            @Nonnull LaserBeamComponent state,
+            @Nonnull CommandBuffer<EntityStore> commandBuffer) {
+
+        if (!state.isActive()) {
             return;
         }
 
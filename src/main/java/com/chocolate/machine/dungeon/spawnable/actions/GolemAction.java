@@ -81,6 +81,11 @@ public class GolemAction implements Spawnable {
         state.setActive(true);
     }
 
+    @Override
+    public boolean hasTickSystem() {
+        return true;
+    }
+
     @Override
     public void tick(
             float dt,
@@ -90,7 +95,18 @@ public class GolemAction implements Spawnable {
         SkeletonActionComponent state = commandBuffer.getComponent(
                 spawnerRef, SkeletonActionComponent.getComponentType());
 
-        if (state == null || !state.isActive()) {
+        if (state != null) {
+            tick(dt, spawnerRef, state, commandBuffer);
+        }
+    }
+
+    public void tick(
+            float dt,
+            @Nonnull Ref<EntityStore> spawnerRef,
+            @Nonnull SkeletonActionComponent state,
+            @Nonnull CommandBuffer<EntityStore> commandBuffer) {
+
+        if (!state.isActive()) {
             return;
         }
 
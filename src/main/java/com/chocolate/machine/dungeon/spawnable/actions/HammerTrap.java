@@ -66,10 +66,10 @@ public class HammerTrap implements Spawnable {
 
     private static final String SWING_SOUND_ASSET = "SFX_Battleaxe_T2_Swing";
 
-    private int damageCauseIndex = -1;
-    private int impactSoundIndex = -1;
-    private int cameraShakeIndex = -1;
-    private int swingSoundIndex = -1;
+    private volatile int damageCauseIndex = -1;
+    private volatile int impactSoundIndex = -1;
+    private volatile int cameraShakeIndex = -1;
+    private volatile int swingSoundIndex = -1;
 
     private int getDamageCauseIndex() {
         if (damageCauseIndex < 0) {
@@ -274,6 +274,16 @@ public class HammerTrap implements Spawnable {
         return spawnedRef;
     }
 
+    @Override
+    public boolean hasTickSystem() {
+        return true;
+    }
+
+    @Override
+    public boolean hasPhaseSchedule() {
+        return true;
+    }
+
     @Override
     public void tick(
             float dt,
@@ -283,7 +293,18 @@ public class HammerTrap implements Spawnable {
         BigFreakingHammerComponent press = commandBuffer.getComponent(
                 spawnerRef, BigFreakingHammerComponent.getComponentType());
 
-        if (press == null || !press.isActive()) {
+        if (press != null) {
+            tick(dt, spawnerRef, press, commandBuffer);
+        }
+    }
+
+    public void tick(
+            float dt,
+            @Nonnull Ref<EntityStore> spawnerRef,
+            @Nonnull BigFreakingHammerComponent press,
+            @Nonnull CommandBuffer<EntityStore> commandBuffer) {
+
+        if (!press.isActive()) {
             return;
         }
 
@@ -328,6 +349,30 @@ public class HammerTrap implements Spawnable {
         }
     }
 
+    // seconds until tick has anything to do again, negative once the hammer has stopped
+    public float getNextPhaseDelay(@Nonnull BigFreakingHammerComponent hammer) {
+        if (!hammer.isActive()) {
+            return -1f;
+        }
+        // waiting for a player to come close enough to spawn it
+        if (!hammer.hasSpawned()) {
+            return 0f;
+        }
+
+        switch (hammer.getPhase()) {
+            case SWING_LEFT:
+            case SWING_RIGHT:
+                float deadline = hammer.getSwingAnimationDuration();
+                if (!hammer.hasDamagedThisCycle()) {
+                    deadline = Math.min(deadline, hammer.getDamageDelayTime());
+                }
+                return Math.max(0f, deadline - hammer.getPhaseTimer());
+
+            default:
+                return 0f;
+        }
+    }
+
     private void handleIdlePhase(BigFreakingHammerComponent hammer,
             Ref<EntityStore> hammerRef,
             Vector3d hammerPosition,
@@ -67,10 +67,10 @@ public class HydraulicPressTrap implements Spawnable {
     private static final String SLAM_SOUND_ASSET = "SFX_Metal_Hit";
     private static final String SLAM_PARTICLE_SYSTEM = "Block_Land_Hard_Dust";
 
-    private int damageCauseIndex = -1;
-    private int impactSoundIndex = -1;
-    private int cameraShakeIndex = -1;
-    private int slamSoundIndex = -1;
+    private volatile int damageCauseIndex = -1;
+    private volatile int impactSoundIndex = -1;
+    private volatile int cameraShakeIndex = -1;
+    private volatile int slamSoundIndex = -1;
 
     private int getDamageCauseIndex() {
         if (damageCauseIndex < 0) {
@@ -245,6 +245,16 @@ public class HydraulicPressTrap implements Spawnable {
         }
     }
 
+    @Override
+    public boolean hasTickSystem() {
+        return true;
+    }
+
+    @Override
+    public boolean hasPhaseSchedule() {
+        return true;
+    }
+
     @Override
     public void tick(
             float dt,
@@ -254,7 +264,18 @@ public class HydraulicPressTrap implements Spawnable {
         HydraulicPressActionComponent press = commandBuffer.getComponent(
                 spawnerRef, HydraulicPressActionComponent.getComponentType());
 
-        if (press == null || !press.isActive()) {
+        if (press != null) {
+            tick(dt, spawnerRef, press, commandBuffer);
+        }
+    }
+
+    public void tick(
+            float dt,
+            @Nonnull Ref<EntityStore> spawnerRef,
+            @Nonnull HydraulicPressActionComponent press,
+            @Nonnull CommandBuffer<EntityStore> commandBuffer) {
+
+        if (!press.isActive()) {
             return;
         }
 
@@ -291,6 +312,32 @@ public class HydraulicPressTrap implements Spawnable {
         }
     }
 
+    // seconds until tick has anything to do again, negative once the press is gone or stopped
+    public float getNextPhaseDelay(@Nonnull HydraulicPressActionComponent press) {
+        if (!press.isActive() || !press.hasSpawned()) {
+            return -1f;
+        }
+
+        float timer = press.getPhaseTimer();
+        switch (press.getPhase()) {
+            case PRESSING:
+                float deadline = press.getPressAnimationDuration();
+                if (!press.hasDamagedThisCycle()) {
+                    deadline = Math.min(deadline, press.getDamageDelayTime());
+                }
+                return Math.max(0f, deadline - timer);
+
+            case RETRACTING:
+                return Math.max(0f, press.getRetractAnimationDuration() - timer);
+
+            case COOLDOWN:
+                return Math.max(0f, press.getCurrentCooldownDuration() - timer);
+
+            default:
+                return 0f;
+        }
+    }
+
     private void startPressCycle(HydraulicPressActionComponent press,
             Ref<EntityStore> pressRef,
             CommandBuffer<EntityStore> commandBuffer) {
@@ -110,6 +110,11 @@ public class LaserTrap implements Spawnable {
         }
     }
 
+    @Override
+    public boolean hasTickSystem() {
+        return true;
+    }
+
     @Override
     public void tick(
             float dt,
@@ -119,7 +124,18 @@ public class LaserTrap implements Spawnable {
         LaserTrapActionComponent laser = commandBuffer.getComponent(
                 spawnerRef, LaserTrapActionComponent.getComponentType());
 
-        if (laser == null || !laser.isActive()) {
+        if (laser != null) {
+            tick(dt, spawnerRef, laser, commandBuffer);
+        }
+    }
+
+    public void tick(
+            float dt,
+            @Nonnull Ref<EntityStore> spawnerRef,
+            @Nonnull LaserTrapActionComponent laser,
+            @Nonnull CommandBuffer<EntityStore> commandBuffer) {
+
+        if (!laser.isActive()) {
             return;
         }
 
@@ -60,8 +60,8 @@ public class SawBladeTrap implements Spawnable {
     private static final String DAMAGE_CAUSE_NAME = "Environment";
     private static final String ENVIRONMENT_SOURCE_TYPE = "sawblade";
 
-    private int damageCauseIndex = -1;
-    private int soundIndex = -1;
+    private volatile int damageCauseIndex = -1;
+    private volatile int soundIndex = -1;
 
     private int getDamageCauseIndex() {
         if (damageCauseIndex < 0) {
@@ -251,6 +251,16 @@ public class SawBladeTrap implements Spawnable {
         return spawnedRef;
     }
 
+    @Override
+    public boolean hasTickSystem() {
+        return true;
+    }
+
+    @Override
+    public boolean hasPhaseSchedule() {
+        return true;
+    }
+
     @Override
     public void tick(
             float dt,
@@ -260,7 +270,18 @@ public class SawBladeTrap implements Spawnable {
         SawBladeComponent state = commandBuffer.getComponent(
                 spawnerRef, SawBladeComponent.getComponentType());
 
-        if (state == null || !state.isActive()) {
+        if (state != null) {
+            tick(dt, spawnerRef, state, commandBuffer);
+        }
+    }
+
+    public void tick(
+            float dt,
+            @Nonnull Ref<EntityStore> spawnerRef,
+            @Nonnull SawBladeComponent state,
+            @Nonnull CommandBuffer<EntityStore> commandBuffer) {
+
+        if (!state.isActive()) {
             return;
         }
 
@@ -313,6 +334,39 @@ public class SawBladeTrap implements Spawnable {
         }
     }
 
+    // seconds until tick has anything to do again, negative once the blade is hidden or stopped
+    public float getNextPhaseDelay(@Nonnull SawBladeComponent state) {
+        if (!state.isActive()) {
+            return -1f;
+        }
+        // waiting for a player to come close enough to spawn it
+        if (!state.hasSpawned()) {
+            return 0f;
+        }
+
+        float timer = state.getPhaseTimer();
+        switch (state.getPhase()) {
+            case ENTERING:
+                return Math.max(0f, state.getEnterDuration() - timer);
+
+            case ACTIVE:
+                // next damage pulse or the end of the spin, whichever comes first
+                return Math.max(0f, Math.min(state.getActiveDuration() - timer,
+                        state.getDamageTickInterval() - state.getLastDamageTime()));
+
+            case PEEKING:
+                return Math.max(0f, (state.isPendingDeactivation()
+                        ? state.getExitDuration()
+                        : state.getPeekDuration()) - timer);
+
+            case EXITING:
+                return Math.max(0f, state.getExitDuration() - timer);
+
+            default:
+                return -1f;
+        }
+    }
+
     private void handleEnteringPhase(SawBladeComponent state,
             Ref<EntityStore> bladeRef,
             Vector3d bladePosition,
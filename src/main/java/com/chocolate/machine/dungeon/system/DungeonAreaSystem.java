@@ -127,24 +127,24 @@ public class DungeonAreaSystem extends EntityTickingSystem<EntityStore> {
         entrance.getPlayersInside().remove(playerUuid);
 
         // remove from dungeon tracking
-        Ref<EntityStore> dungeonRef = dungeoneer.getDungeonRef();
+        Ref<EntityStore> dungeonRef = DungeonFinder.resolveDungeon(dungeoneer, commandBuffer);
         DungeonComponent dungeon = null;
-        if (dungeonRef != null && dungeonRef.isValid()) {
+        if (dungeonRef != null) {
             dungeon = commandBuffer.getComponent(dungeonRef, DungeonComponent.getComponentType());
         }
 
-        // if dungeonRef was invalid (e.g. after reconnect), find dungeon by position
+        // no handle either (dungeoneer saved before handles existed), find dungeon by id
         if (dungeon == null) {
             TransformComponent playerTransform = commandBuffer.getComponent(playerRef, TransformComponent.getComponentType());
             if (playerTransform != null) {
-                Ref<EntityStore> foundDungeonRef = DungeonFinder.findNearestDungeon(
-                        playerTransform.getPosition(), commandBuffer);
+                Ref<EntityStore> foundDungeonRef = DungeonFinder.findDungeonById(
+                        dungeonId, playerTransform.getPosition(), commandBuffer);
                 if (foundDungeonRef != null && foundDungeonRef.isValid()) {
                     DungeonComponent foundDungeon = commandBuffer.getComponent(foundDungeonRef, DungeonComponent.getComponentType());
-                    if (foundDungeon != null && foundDungeon.getDungeonId().equals(dungeonId)) {
+                    if (foundDungeon != null) {
                         dungeon = foundDungeon;
                         dungeonRef = foundDungeonRef;
-                        LOGGER.atInfo().log("[DungeonAreaSystem] Found dungeon by position for cleanup (dungeonRef was invalid)");
+                        LOGGER.atInfo().log("[DungeonAreaSystem] Found dungeon by id for cleanup (dungeonRef was invalid)");
                     }
                 }
             }
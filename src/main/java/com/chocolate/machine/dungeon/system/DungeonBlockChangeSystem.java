@@ -0,0 +1,145 @@
+package com.chocolate.machine.dungeon.system;
+
+import com.chocolate.machine.dungeon.DungeonBlockTypes;
+import com.chocolate.machine.dungeon.DungeonService;
+import com.chocolate.machine.dungeon.component.DungeonComponent;
+import com.chocolate.machine.dungeon.resource.DungeonBlockIndex;
+import com.chocolate.machine.dungeon.resource.DungeonIndex;
+import com.hypixel.hytale.component.ArchetypeChunk;
+import com.hypixel.hytale.component.CommandBuffer;
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.component.query.Query;
+import com.hypixel.hytale.component.system.EntityEventSystem;
+import com.hypixel.hytale.math.util.ChunkUtil;
+import com.hypixel.hytale.math.vector.Vector3i;
+import com.hypixel.hytale.server.core.event.events.ecs.BreakBlockEvent;
+import com.hypixel.hytale.server.core.event.events.ecs.PlaceBlockEvent;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.chunk.WorldChunk;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import javax.annotation.Nonnull;
+
+// keeps DungeonBlockIndex and saved dungeon block lists current when players place or break blocks
+public final class DungeonBlockChangeSystem {
+
+    // scan bounds are a box of BLOCK_SCAN_RADIUS around the controller, this reaches its corners
+    private static final double SCAN_REACH = DungeonService.BLOCK_SCAN_RADIUS * Math.sqrt(3.0) + 1.0;
+
+    private static final ThreadLocal<ObjectArrayList<Ref<EntityStore>>> DUNGEON_BUFFER =
+            ThreadLocal.withInitial(ObjectArrayList::new);
+
+    private DungeonBlockChangeSystem() {}
+
+    // the events fire before the block changes, so re-read the position on the next world task
+    private static void refreshLater(@Nonnull CommandBuffer<EntityStore> commandBuffer, @Nonnull Vector3i target) {
+        if (DungeonBlockIndex.getResourceType() == null) {
+            return;
+        }
+
+        World world = commandBuffer.getExternalData().getWorld();
+        if (world == null) {
+            return;
+        }
+
+        int x = target.getX();
+        int y = target.getY();
+        int z = target.getZ();
+        world.execute(() -> {
+            Store<EntityStore> store = world.getEntityStore().getStore();
+            DungeonBlockIndex index = store.getResource(DungeonBlockIndex.getResourceType());
+            if (index != null) {
+                index.refreshBlock(world, x, y, z);
+            }
+            invalidateSavedBlocks(world, store, x, y, z);
+        });
+    }
+
+    // a CM_ block placed or removed inside a dungeon's scanned area makes its saved block list stale.
+    // only controllers close enough for their scan to reach the position are looked at
+    private static void invalidateSavedBlocks(@Nonnull World world, @Nonnull Store<EntityStore> store,
+            int x, int y, int z) {
+        DungeonIndex dungeonIndex = DungeonIndex.getResourceType() != null
+                ? store.getResource(DungeonIndex.getResourceType())
+                : null;
+        if (dungeonIndex == null) {
+            return;
+        }
+
+        ObjectArrayList<Ref<EntityStore>> dungeons = DUNGEON_BUFFER.get();
+        try {
+            dungeonIndex.findInRange(x + 0.5, y + 0.5, z + 0.5, SCAN_REACH, dungeons);
+            if (dungeons.isEmpty()) {
+                return;
+            }
+
+            WorldChunk chunk = world.getChunkIfInMemory(ChunkUtil.indexChunkFromBlock(x, z));
+            boolean dungeonBlock = chunk != null
+                    && DungeonBlockTypes.getInstance().isDungeonBlock(chunk.getBlock(x, y, z));
+            for (int i = 0; i < dungeons.size(); i++) {
+                DungeonComponent dungeon = store.getComponent(dungeons.get(i), DungeonComponent.getComponentType());
+                if (dungeon != null && dungeon.affectsSavedBlocks(x, y, z, dungeonBlock)) {
+                    dungeon.invalidateSavedBlocks();
+                }
+            }
+        } finally {
+            dungeons.clear();
+        }
+    }
+
+    public static class Place extends EntityEventSystem<EntityStore, PlaceBlockEvent> {
+
+        public Place() {
+            super(PlaceBlockEvent.class);
+        }
+
+        @Nonnull
+        @Override
+        public Query<EntityStore> getQuery() {
+            return PlayerRef.getComponentType();
+        }
+
+        @Override
+        public void handle(
+                int index,
+                @Nonnull ArchetypeChunk<EntityStore> archetypeChunk,
+                @Nonnull Store<EntityStore> store,
+                @Nonnull CommandBuffer<EntityStore> commandBuffer,
+                @Nonnull PlaceBlockEvent event) {
+            if (event.isCancelled()) {
+                return;
+            }
+            refreshLater(commandBuffer, event.getTargetBlock());
+        }
+    }
+
+    public static class Break extends EntityEventSystem<EntityStore, BreakBlockEvent> {
+
+        public Break() {
+            super(BreakBlockEvent.class);
+        }
+
+        @Nonnull
+        @Override
+        public Query<EntityStore> getQuery() {
+            return PlayerRef.getComponentType();
+        }
+
+        @Override
+        public void handle(
+                int index,
+                @Nonnull ArchetypeChunk<EntityStore> archetypeChunk,
+                @Nonnull Store<EntityStore> store,
+                @Nonnull CommandBuffer<EntityStore> commandBuffer,
+                @Nonnull BreakBlockEvent event) {
+            if (event.isCancelled()) {
+                return;
+            }
+            refreshLater(commandBuffer, event.getTargetBlock());
+        }
+    }
+}
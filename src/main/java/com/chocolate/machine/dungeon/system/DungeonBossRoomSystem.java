@@ -8,6 +8,7 @@ import javax.annotation.Nonnull;
 
 import com.chocolate.machine.dungeon.component.DungeonComponent;
 import com.chocolate.machine.dungeon.component.DungeoneerComponent;
+import com.chocolate.machine.utils.DungeonFinder;
 import com.hypixel.hytale.component.ArchetypeChunk;
 import com.hypixel.hytale.component.CommandBuffer;
 import com.hypixel.hytale.component.Ref;
@@ -135,7 +136,7 @@ public class DungeonBossRoomSystem extends EntityTickingSystem<EntityStore> {
             }
 
             DungeoneerComponent dungeoneer = new DungeoneerComponent(dungeonId, spawnPosition);
-            dungeoneer.setDungeonRef(dungeonRef);
+            DungeonFinder.bindDungeoneer(playerRef, dungeoneer, dungeonRef, commandBuffer);
 
             // backup and override respawn point
             Player player = commandBuffer.getComponent(playerRef, Player.getComponentType());
@@ -0,0 +1,53 @@
+package com.chocolate.machine.dungeon.system;
+
+import com.chocolate.machine.dungeon.resource.DungeonBlockIndex;
+import com.hypixel.hytale.component.AddReason;
+import com.hypixel.hytale.component.CommandBuffer;
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.RemoveReason;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.component.query.Query;
+import com.hypixel.hytale.component.system.RefSystem;
+import com.hypixel.hytale.math.util.ChunkUtil;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.chunk.WorldChunk;
+import com.hypixel.hytale.server.core.universe.world.storage.ChunkStore;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import javax.annotation.Nonnull;
+
+// drops a chunk's DungeonBlockIndex entries when the chunk leaves the chunk store
+public class DungeonChunkUnloadSystem extends RefSystem<ChunkStore> {
+
+    @Nonnull
+    @Override
+    public Query<ChunkStore> getQuery() {
+        return WorldChunk.getComponentType();
+    }
+
+    @Override
+    public void onEntityAdded(@Nonnull Ref<ChunkStore> ref, @Nonnull AddReason reason,
+            @Nonnull Store<ChunkStore> store, @Nonnull CommandBuffer<ChunkStore> commandBuffer) {
+        // loads are handled by DungeonChunkListener once the chunk is fully processed
+    }
+
+    @Override
+    public void onEntityRemove(@Nonnull Ref<ChunkStore> ref, @Nonnull RemoveReason reason,
+            @Nonnull Store<ChunkStore> store, @Nonnull CommandBuffer<ChunkStore> commandBuffer) {
+        if (DungeonBlockIndex.getResourceType() == null) {
+            return;
+        }
+
+        WorldChunk chunk = store.getComponent(ref, WorldChunk.getComponentType());
+        World world = store.getExternalData().getWorld();
+        if (chunk == null || world == null) {
+            return;
+        }
+
+        Store<EntityStore> entityStore = world.getEntityStore().getStore();
+        DungeonBlockIndex index = entityStore.getResource(DungeonBlockIndex.getResourceType());
+        if (index != null) {
+            index.onChunkUnload(ChunkUtil.indexChunk(chunk.getX(), chunk.getZ()));
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.chocolate.machine.dungeon.system;
+
+import com.chocolate.machine.dungeon.component.DungeonEntranceComponent;
+import com.chocolate.machine.dungeon.resource.DungeonEntranceRegistry;
+import com.hypixel.hytale.component.AddReason;
+import com.hypixel.hytale.component.CommandBuffer;
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.RemoveReason;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.component.query.Query;
+import com.hypixel.hytale.component.system.RefSystem;
+import com.hypixel.hytale.server.core.modules.entity.component.TransformComponent;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import javax.annotation.Nonnull;
+
+// keeps DungeonEntranceRegistry in step with the live entrance entities
+public class DungeonEntranceRegistrySystem extends RefSystem<EntityStore> {
+
+    @Nonnull
+    @Override
+    public Query<EntityStore> getQuery() {
+        return Query.and(DungeonEntranceComponent.getComponentType(), TransformComponent.getComponentType());
+    }
+
+    @Override
+    public void onEntityAdded(@Nonnull Ref<EntityStore> ref, @Nonnull AddReason reason,
+            @Nonnull Store<EntityStore> store, @Nonnull CommandBuffer<EntityStore> commandBuffer) {
+        DungeonEntranceRegistry registry = store.getResource(DungeonEntranceRegistry.getResourceType());
+        DungeonEntranceComponent entrance = commandBuffer.getComponent(ref, DungeonEntranceComponent.getComponentType());
+        TransformComponent transform = commandBuffer.getComponent(ref, TransformComponent.getComponentType());
+        if (registry != null && entrance != null && transform != null) {
+            registry.add(ref, entrance.getDungeonId(), transform.getPosition());
+        }
+    }
+
+    @Override
+    public void onEntityRemove(@Nonnull Ref<EntityStore> ref, @Nonnull RemoveReason reason,
+            @Nonnull Store<EntityStore> store, @Nonnull CommandBuffer<EntityStore> commandBuffer) {
+        DungeonEntranceRegistry registry = store.getResource(DungeonEntranceRegistry.getResourceType());
+        if (registry != null) {
+            registry.remove(ref);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.chocolate.machine.dungeon.system;
+
+import com.chocolate.machine.dungeon.component.DungeonComponent;
+import com.chocolate.machine.dungeon.resource.DungeonBlockIndex;
+import com.chocolate.machine.dungeon.resource.DungeonIndex;
+import com.hypixel.hytale.component.AddReason;
+import com.hypixel.hytale.component.CommandBuffer;
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.RemoveReason;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.component.query.Query;
+import com.hypixel.hytale.component.system.RefSystem;
+import com.hypixel.hytale.server.core.entity.UUIDComponent;
+import com.hypixel.hytale.server.core.modules.entity.component.TransformComponent;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+// keeps DungeonIndex in step with the live dungeon controllers
+public class DungeonIndexSystem extends RefSystem<EntityStore> {
+
+    @Nonnull
+    @Override
+    public Query<EntityStore> getQuery() {
+        return Query.and(DungeonComponent.getComponentType(), TransformComponent.getComponentType());
+    }
+
+    @Override
+    public void onEntityAdded(@Nonnull Ref<EntityStore> ref, @Nonnull AddReason reason,
+            @Nonnull Store<EntityStore> store, @Nonnull CommandBuffer<EntityStore> commandBuffer) {
+        DungeonIndex index = store.getResource(DungeonIndex.getResourceType());
+        DungeonComponent dungeon = commandBuffer.getComponent(ref, DungeonComponent.getComponentType());
+        TransformComponent transform = commandBuffer.getComponent(ref, TransformComponent.getComponentType());
+        UUIDComponent uuidComponent = commandBuffer.getComponent(ref, UUIDComponent.getComponentType());
+        if (index != null && dungeon != null && transform != null) {
+            index.add(ref, dungeon.getDungeonId(), transform.getPosition(),
+                    uuidComponent != null ? uuidComponent.getUuid() : null);
+        }
+        DungeonBlockIndex blockIndex = getBlockIndex(store);
+        if (blockIndex != null && dungeon != null) {
+            blockIndex.trackFootprint(ref, dungeon);
+        }
+    }
+
+    @Override
+    public void onEntityRemove(@Nonnull Ref<EntityStore> ref, @Nonnull RemoveReason reason,
+            @Nonnull Store<EntityStore> store, @Nonnull CommandBuffer<EntityStore> commandBuffer) {
+        DungeonIndex index = store.getResource(DungeonIndex.getResourceType());
+        if (index != null) {
+            index.remove(ref);
+        }
+        DungeonBlockIndex blockIndex = getBlockIndex(store);
+        if (blockIndex != null) {
+            blockIndex.untrackFootprint(ref);
+        }
+    }
+
+    // footprints saved with the controller keep their chunks indexed while it is loaded,
+    // the index remembers each controller's box so removal needs nothing but the ref
+    @Nullable
+    private static DungeonBlockIndex getBlockIndex(@Nonnull Store<EntityStore> store) {
+        return DungeonBlockIndex.getResourceType() != null
+                ? store.getResource(DungeonBlockIndex.getResourceType())
+                : null;
+    }
+}
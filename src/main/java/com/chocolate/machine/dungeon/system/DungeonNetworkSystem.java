@@ -0,0 +1,100 @@
+package com.chocolate.machine.dungeon.system;
+
+import com.chocolate.machine.dungeon.component.DungeonComponent;
+import com.chocolate.machine.dungeon.component.DungeonEntranceComponent;
+import com.chocolate.machine.dungeon.component.SpawnerComponent;
+import com.chocolate.machine.dungeon.resource.DungeonNetworkGraph;
+import com.hypixel.hytale.component.AddReason;
+import com.hypixel.hytale.component.CommandBuffer;
+import com.hypixel.hytale.component.ComponentType;
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.RemoveReason;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.component.query.Query;
+import com.hypixel.hytale.component.system.RefSystem;
+import com.hypixel.hytale.server.core.modules.entity.component.TransformComponent;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import javax.annotation.Nonnull;
+
+// keeps DungeonNetworkGraph in step with the spawner, entrance and dungeon entities of the world
+public final class DungeonNetworkSystem {
+
+    private DungeonNetworkSystem() {}
+
+    private abstract static class Tracker extends RefSystem<EntityStore> {
+
+        private final int kind;
+
+        Tracker(int kind) {
+            this.kind = kind;
+        }
+
+        @Nonnull
+        abstract ComponentType<EntityStore, ?> getTrackedType();
+
+        @Nonnull
+        @Override
+        public Query<EntityStore> getQuery() {
+            return Query.and(getTrackedType(), TransformComponent.getComponentType());
+        }
+
+        @Override
+        public void onEntityAdded(@Nonnull Ref<EntityStore> ref, @Nonnull AddReason reason,
+                @Nonnull Store<EntityStore> store, @Nonnull CommandBuffer<EntityStore> commandBuffer) {
+            DungeonNetworkGraph graph = store.getResource(DungeonNetworkGraph.getResourceType());
+            TransformComponent transform = commandBuffer.getComponent(ref, TransformComponent.getComponentType());
+            if (graph != null && transform != null) {
+                graph.add(ref, kind, transform.getPosition());
+            }
+        }
+
+        @Override
+        public void onEntityRemove(@Nonnull Ref<EntityStore> ref, @Nonnull RemoveReason reason,
+                @Nonnull Store<EntityStore> store, @Nonnull CommandBuffer<EntityStore> commandBuffer) {
+            DungeonNetworkGraph graph = store.getResource(DungeonNetworkGraph.getResourceType());
+            if (graph != null) {
+                graph.remove(ref, kind);
+            }
+        }
+    }
+
+    public static class Spawners extends Tracker {
+
+        public Spawners() {
+            super(DungeonNetworkGraph.SPAWNER);
+        }
+
+        @Nonnull
+        @Override
+        ComponentType<EntityStore, ?> getTrackedType() {
+            return SpawnerComponent.getComponentType();
+        }
+    }
+
+    public static class Entrances extends Tracker {
+
+        public Entrances() {
+            super(DungeonNetworkGraph.ENTRANCE);
+        }
+
+        @Nonnull
+        @Override
+        ComponentType<EntityStore, ?> getTrackedType() {
+            return DungeonEntranceComponent.getComponentType();
+        }
+    }
+
+    public static class Dungeons extends Tracker {
+
+        public Dungeons() {
+            super(DungeonNetworkGraph.DUNGEON);
+        }
+
+        @Nonnull
+        @Override
+        ComponentType<EntityStore, ?> getTrackedType() {
+            return DungeonComponent.getComponentType();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.chocolate.machine.dungeon.system;
+
+import javax.annotation.Nonnull;
+
+import com.chocolate.machine.dungeon.DungeonModule;
+import com.chocolate.machine.dungeon.DungeonRegistrationJob;
+import com.chocolate.machine.dungeon.component.DungeonComponent;
+import com.chocolate.machine.dungeon.resource.DungeonRegistrationQueue;
+import com.hypixel.hytale.component.ArchetypeChunk;
+import com.hypixel.hytale.component.CommandBuffer;
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.component.query.Query;
+import com.hypixel.hytale.component.system.tick.EntityTickingSystem;
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+// works through queued dungeon registrations, one job at a time within the configured per-tick budget
+public class DungeonRegistrationJobSystem extends EntityTickingSystem<EntityStore> {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    @Nonnull
+    @Override
+    public Query<EntityStore> getQuery() {
+        return Query.and(DungeonComponent.getComponentType());
+    }
+
+    @Override
+    public void tick(float dt, int index, ArchetypeChunk<EntityStore> chunk,
+            Store<EntityStore> store, CommandBuffer<EntityStore> commandBuffer) {
+
+        if (DungeonRegistrationQueue.getResourceType() == null) {
+            return;
+        }
+
+        DungeonRegistrationQueue queue = commandBuffer.getResource(DungeonRegistrationQueue.getResourceType());
+        if (queue == null || queue.isEmpty()) {
+            return;
+        }
+
+        // only the oldest job runs, so the budget holds no matter how many dungeons are queued
+        DungeonRegistrationJob job = queue.peek();
+        Ref<EntityStore> ref = chunk.getReferenceTo(index);
+        if (job == null || !job.getDungeonRef().equals(ref)) {
+            return;
+        }
+
+        DungeonModule module = DungeonModule.get();
+        if (module == null) {
+            return;
+        }
+
+        long deadline = System.nanoTime() + module.getConfig().getRegistrationBudgetMicros() * 1000L;
+        boolean done;
+        try {
+            done = module.getDungeonService().advanceRegistration(job, commandBuffer, deadline);
+        } catch (Exception e) {
+            LOGGER.atSevere().log("[DungeonRegistrationJobSystem] Registration failed at stage %s: %s",
+                    job.getStage(), e.getMessage());
+            DungeonComponent dungeon = chunk.getComponent(index, DungeonComponent.getComponentType());
+            if (dungeon != null) {
+                dungeon.setRegistering(false);
+            }
+            done = true;
+        }
+
+        if (done) {
+            queue.remove(ref);
+        }
+    }
+
+    @Override
+    public boolean isParallel(int archetypeChunkSize, int taskCount) {
+        return false;
+    }
+}
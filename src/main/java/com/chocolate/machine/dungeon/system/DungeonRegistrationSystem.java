@@ -6,6 +6,7 @@ import com.chocolate.machine.dungeon.DungeonModule;
 import com.chocolate.machine.dungeon.DungeonService;
 import com.chocolate.machine.dungeon.component.DungeonComponent;
 import com.chocolate.machine.dungeon.component.SpawnerComponent;
+import com.chocolate.machine.dungeon.resource.PendingBlockStateQueue;
 import com.chocolate.machine.dungeon.spawnable.Spawnable;
 import com.chocolate.machine.dungeon.spawnable.SpawnableRegistry;
 import com.hypixel.hytale.component.AddReason;
@@ -70,21 +71,25 @@ public class DungeonRegistrationSystem extends RefSystem<EntityStore> {
                 return;
             }
             World world = commandBuffer.getExternalData().getWorld();
-            int spawnerCount;
+
+            // pasted or command-spawned dungeons bring blocks the index never saw a place event for
+            if (reason == AddReason.SPAWN) {
+                dungeonService.invalidateBlockIndex(pos, commandBuffer);
+            }
+
+            // registration runs in budgeted slices from DungeonRegistrationJobSystem
+            boolean queued;
             try {
-                spawnerCount = dungeonService.registerDungeon(ref, commandBuffer, world);
+                queued = dungeonService.queueRegistration(ref, commandBuffer, world);
             } catch (Exception e) {
                 LOGGER.atSevere().log("[DungeonRegistrationSystem] Failed to register dungeon: %s", e.getMessage());
                 return;
             }
 
-            // Re-fetch dungeon to get updated counts
-            dungeon = commandBuffer.getComponent(ref, DungeonComponent.getComponentType());
-            int blockCount = dungeon != null ? dungeon.getDungeonBlockCount() : 0;
-            boolean hasEntrance = dungeon != null && dungeon.getEntranceRef() != null;
-
-            LOGGER.atInfo().log("[DungeonRegistrationSystem] Dungeon '%s' registered: %d spawners, %d dungeon blocks, entrance found: %s",
-                    dungeon != null ? dungeon.getDungeonId() : "(null)", spawnerCount, blockCount, hasEntrance);
+            if (queued) {
+                LOGGER.atInfo().log("[DungeonRegistrationSystem] Dungeon '%s' queued for registration",
+                        dungeon.getDungeonId());
+            }
         } else {
             LOGGER.atWarning().log("[DungeonRegistrationSystem] DungeonModule not available, cannot register dungeon");
         }
@@ -102,6 +107,11 @@ public class DungeonRegistrationSystem extends RefSystem<EntityStore> {
         LOGGER.atInfo().log("[DungeonRegistrationSystem] Dungeon '%s' being removed, cleaning up",
                 dungeon.getDungeonId());
 
+        DungeonModule module = DungeonModule.get();
+        if (module != null) {
+            module.getDungeonService().cancelRegistration(ref, accessor);
+        }
+
         // Clean up spawner references
         for (Ref<EntityStore> spawnerRef : dungeon.getSpawnerRefs()) {
             if (!spawnerRef.isValid()) continue;
@@ -123,6 +133,15 @@ public class DungeonRegistrationSystem extends RefSystem<EntityStore> {
             }
         }
 
+        // a dungeon that is gone for good must not flip its old blocks when their chunks load later.
+        // on unload the queue is kept, the states still apply once the chunks come back
+        if (reason == RemoveReason.REMOVE && PendingBlockStateQueue.getResourceType() != null) {
+            PendingBlockStateQueue pending = accessor.getResource(PendingBlockStateQueue.getResourceType());
+            if (pending != null) {
+                pending.removeAll(dungeon.getDungeonBlockSet());
+            }
+        }
+
         dungeon.clearSpawnerRefs();
         dungeon.clearDungeonBlocks();
     }
@@ -2,10 +2,13 @@ package com.chocolate.machine.dungeon.system;
 
 import javax.annotation.Nonnull;
 
+import com.chocolate.machine.config.MachineConfig;
+import com.chocolate.machine.dungeon.DungeonModule;
 import com.chocolate.machine.dungeon.component.DungeonComponent;
+import com.chocolate.machine.dungeon.component.SpawnerGrid;
 import com.chocolate.machine.dungeon.component.SpawnerComponent;
+import com.chocolate.machine.dungeon.component.TrapTimingWheel;
 import com.chocolate.machine.dungeon.spawnable.Spawnable;
-import com.chocolate.machine.dungeon.spawnable.SpawnableRegistry;
 import com.hypixel.hytale.component.ArchetypeChunk;
 import com.hypixel.hytale.component.CommandBuffer;
 import com.hypixel.hytale.component.Ref;
@@ -13,19 +16,23 @@ import com.hypixel.hytale.component.Store;
 import com.hypixel.hytale.component.query.Query;
 import com.hypixel.hytale.component.system.tick.EntityTickingSystem;
 import com.hypixel.hytale.logger.HytaleLogger;
-import com.hypixel.hytale.math.vector.Vector3d;
 import com.hypixel.hytale.server.core.modules.entity.component.TransformComponent;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 
-import java.util.HashSet;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import java.util.BitSet;
 import java.util.List;
-import java.util.Set;
 
 public class DungeonTickSystem extends EntityTickingSystem<EntityStore> {
 
     private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
-    private static final double SPAWNER_TICK_RADIUS = 50.0;
-    private static final double SPAWNER_TICK_RADIUS_SQ = SPAWNER_TICK_RADIUS * SPAWNER_TICK_RADIUS;
+
+    // slots of the spawners within the near and mid tick radius of a dungeoneer, reused across ticks.
+    // near ones tick every tick, mid ones every few ticks with the skipped dt, the rest stay frozen
+    private static final ThreadLocal<BitSet> NEAR_SET = ThreadLocal.withInitial(BitSet::new);
+    private static final ThreadLocal<BitSet> MID_SET = ThreadLocal.withInitial(BitSet::new);
+    private static final ThreadLocal<List<Ref<EntityStore>>> FIRED = ThreadLocal.withInitial(ObjectArrayList::new);
 
     @Nonnull
     @Override
@@ -42,12 +49,34 @@ public class DungeonTickSystem extends EntityTickingSystem<EntityStore> {
             return;
         }
 
-        List<Ref<EntityStore>> spawnerRefs = dungeon.getSpawnerRefs();
         List<Ref<EntityStore>> dungeoneerRefs = dungeon.getDungeoneerRefs();
-        SpawnableRegistry registry = SpawnableRegistry.getInstance();
 
-        // player-centric: only tick spawners near players
-        Set<Ref<EntityStore>> spawnersToTick = new HashSet<>();
+        SpawnerGrid grid = dungeon.getSpawnerGrid();
+        if (grid.isDirty()) {
+            dungeon.rebuildSpawnerGrid(commandBuffer);
+        }
+
+        // phased traps that ran last tick have reported their next deadline by now
+        TrapTimingWheel wheel = dungeon.getTrapWheel();
+        for (int i = 0; i < wheel.getRanCount(); i++) {
+            Ref<EntityStore> spawnerRef = wheel.getRan(i);
+            SpawnerComponent spawner = spawnerRef.isValid()
+                    ? commandBuffer.getComponent(spawnerRef, SpawnerComponent.getComponentType())
+                    : null;
+            wheel.rescheduleRan(i, spawner != null ? spawner.consumeNextPhaseDelay() : -1f);
+        }
+        wheel.clearRan();
+
+        MachineConfig config = DungeonModule.get().getConfig();
+        double nearRadius = config.getSpawnerNearRadius();
+        double midRadius = config.getSpawnerMidRadius();
+        int midInterval = config.getSpawnerMidTickInterval();
+
+        // player-centric: only tick spawners near players, each player reads the grid cells around it
+        BitSet nearSpawners = NEAR_SET.get();
+        BitSet midSpawners = MID_SET.get();
+        nearSpawners.clear();
+        midSpawners.clear();
 
         for (int p = 0; p < dungeoneerRefs.size(); p++) {
             Ref<EntityStore> playerRef = dungeoneerRefs.get(p);
@@ -56,42 +85,93 @@ public class DungeonTickSystem extends EntityTickingSystem<EntityStore> {
             TransformComponent playerTransform = commandBuffer.getComponent(playerRef, TransformComponent.getComponentType());
             if (playerTransform == null) continue;
 
-            Vector3d playerPos = playerTransform.getPosition();
+            grid.collect(playerTransform.getPosition(), nearRadius, nearSpawners);
+            if (midRadius > nearRadius) {
+                grid.collect(playerTransform.getPosition(), midRadius, midSpawners);
+            }
+        }
 
-            for (int s = 0; s < spawnerRefs.size(); s++) {
-                Ref<EntityStore> spawnerRef = spawnerRefs.get(s);
-                if (!spawnerRef.isValid()) continue;
+        midSpawners.or(nearSpawners);
 
-                TransformComponent spawnerTransform = commandBuffer.getComponent(spawnerRef, TransformComponent.getComponentType());
-                if (spawnerTransform == null) continue;
+        // deadlines that passed run with everything since their last run, in either tier. one that fires
+        // out of range of every player drops out of the wheel until a player gets close again
+        List<Ref<EntityStore>> fired = FIRED.get();
+        fired.clear();
+        wheel.advance(dt, fired);
+        for (int i = 0; i < fired.size(); i++) {
+            Ref<EntityStore> spawnerRef = fired.get(i);
+            int slot = grid.getSlot(spawnerRef);
+            if (slot < 0 || !midSpawners.get(slot) || !spawnerRef.isValid()) continue;
 
-                double distSq = playerPos.distanceSquaredTo(spawnerTransform.getPosition());
-                if (distSq <= SPAWNER_TICK_RADIUS_SQ) {
-                    spawnersToTick.add(spawnerRef);
-                }
-            }
+            SpawnerComponent spawner = commandBuffer.getComponent(spawnerRef, SpawnerComponent.getComponentType());
+            Spawnable spawnable = spawner != null ? spawner.getSpawnable() : null;
+            if (spawnable == null || !spawner.isActive()) continue;
+
+            // the elapsed time already covers anything deferred
+            spawner.drainDeferredDelta();
+            float elapsed = wheel.getElapsed(spawnerRef);
+            wheel.markRan(spawnerRef);
+            tickSpawner(spawnerRef, spawner, spawnable, elapsed, commandBuffer);
         }
+        fired.clear();
 
-        // tick only spawners near players
-        for (Ref<EntityStore> spawnerRef : spawnersToTick) {
-            if (!spawnerRef.isValid()) continue;
+        // tick near spawners, and mid-range ones once enough ticks have been deferred
+        for (int slot = midSpawners.nextSetBit(0); slot >= 0; slot = midSpawners.nextSetBit(slot + 1)) {
+            Ref<EntityStore> spawnerRef = grid.getRef(slot);
+            // waiting for its deadline, or already fired above
+            if (wheel.isScheduled(spawnerRef) || wheel.hasRun(spawnerRef) || !spawnerRef.isValid()) continue;
 
             SpawnerComponent spawner = commandBuffer.getComponent(spawnerRef, SpawnerComponent.getComponentType());
             if (spawner == null || !spawner.isActive()) continue;
 
-            Spawnable spawnable = registry.get(spawner.getExecutionId());
+            Spawnable spawnable = spawner.getSpawnable();
             if (spawnable == null) continue;
 
-            try {
-                spawnable.tick(dt, spawnerRef, commandBuffer);
-            } catch (Exception e) {
-                LOGGER.atSevere().log("tick failed for spawner '%s': %s", spawner.getExecutionId(), e.getMessage());
+            // parked traps stay put until they are activated, deactivated or reset
+            boolean phased = spawnable.hasTickSystem() && spawnable.hasPhaseSchedule();
+            if (phased && wheel.isParked(spawnerRef) && !spawner.consumePhaseWake()) continue;
+
+            // skipped mid-range dt is handed over in full on the next tick that runs, whichever tier
+            // the spawner is in by then, so phase and damage timers never lose time
+            float delta;
+            if (nearSpawners.get(slot)) {
+                delta = dt + spawner.drainDeferredDelta();
+            } else {
+                spawner.defer(dt);
+                if (spawner.getDeferredTicks() < midInterval) continue;
+                delta = spawner.drainDeferredDelta();
+            }
+
+            if (phased) {
+                wheel.markRan(spawnerRef);
             }
+            tickSpawner(spawnerRef, spawner, spawnable, delta, commandBuffer);
+        }
+    }
+
+    // left to its SpawnerActionSystem later this tick when one matches the spawner, ticked here otherwise.
+    // a due flag no ticker consumes would fire on whatever tick the component shows up, so it is cleared
+    private static void tickSpawner(@Nonnull Ref<EntityStore> spawnerRef, @Nonnull SpawnerComponent spawner,
+            @Nonnull Spawnable spawnable, float delta, @Nonnull CommandBuffer<EntityStore> commandBuffer) {
+        if (spawnable.hasTickSystem() && SpawnerActionSystem.hasActionComponent(spawnerRef, commandBuffer)) {
+            spawner.markTickDue(delta);
+            return;
+        }
+
+        spawner.consumeTickDue();
+        try {
+            spawnable.tick(delta, spawnerRef, commandBuffer);
+        } catch (Exception e) {
+            LOGGER.atSevere().log("tick failed for spawner '%s': %s", spawner.getExecutionId(), e.getMessage());
         }
     }
 
+    // dungeons never share spawners, so each one can tick as its own task writing through that task's
+    // CommandBuffer. the Spawnable singletons hold nothing but lazily cached asset indices
     @Override
     public boolean isParallel(int archetypeChunkSize, int taskCount) {
-        return false;
+        DungeonModule module = DungeonModule.get();
+        return module != null && module.getConfig().isParallelDungeonTicks()
+                && EntityTickingSystem.maybeUseParallel(archetypeChunkSize, taskCount);
     }
 }
@@ -5,7 +5,10 @@ import javax.annotation.Nonnull;
 import com.chocolate.machine.dungeon.DungeonModule;
 import com.chocolate.machine.dungeon.component.DungeonComponent;
 import com.chocolate.machine.dungeon.component.DungeoneerComponent;
+import com.chocolate.machine.dungeon.resource.DungeonIndex;
+import com.chocolate.machine.utils.DungeonFinder;
 import java.util.List;
+import java.util.UUID;
 
 import com.hypixel.hytale.component.AddReason;
 import com.hypixel.hytale.component.CommandBuffer;
@@ -42,11 +45,17 @@ public class DungeoneerCleanupSystem extends RefSystem<EntityStore> {
         PlayerRef playerRef = store.getComponent(ref, PlayerRef.getComponentType());
         String playerName = playerRef != null ? playerRef.getUsername() : "Unknown";
 
+        // a logout keeps the membership for the reconnect, anything else ends it
+        DungeonIndex index = store.getResource(DungeonIndex.getResourceType());
+        if (index != null && playerRef != null && reason != RemoveReason.UNLOAD) {
+            index.setPlayerDungeon(playerRef.getUuid(), null);
+        }
+
         LOGGER.atInfo().log("[DungeoneerCleanupSystem] Player '%s' removed while in dungeon '%s' (relicHolder: %s)",
                 playerName, dungeoneer.getDungeonId(), dungeoneer.isRelicHolder());
 
-        Ref<EntityStore> dungeonRef = dungeoneer.getDungeonRef();
-        if (dungeonRef == null || !dungeonRef.isValid()) {
+        Ref<EntityStore> dungeonRef = DungeonFinder.resolveDungeon(dungeoneer, commandBuffer);
+        if (dungeonRef == null) {
             return;
         }
 
@@ -98,6 +107,27 @@ public class DungeoneerCleanupSystem extends RefSystem<EntityStore> {
     @Override
     public void onEntityAdded(@Nonnull Ref<EntityStore> ref, @Nonnull AddReason reason,
             @Nonnull Store<EntityStore> store, @Nonnull CommandBuffer<EntityStore> commandBuffer) {
-        // not used - we only care about removal
+        DungeoneerComponent dungeoneer = store.getComponent(ref, DungeoneerComponent.getComponentType());
+        PlayerRef playerRef = store.getComponent(ref, PlayerRef.getComponentType());
+        DungeonIndex index = store.getResource(DungeonIndex.getResourceType());
+        if (dungeoneer == null || playerRef == null || index == null) {
+            return;
+        }
+
+        // loaded dungeoneers only carry the controller UUID, map the player and re-attach the ref
+        UUID handle = dungeoneer.getDungeonHandle();
+        if (handle == null) {
+            handle = index.getPlayerDungeonHandle(playerRef.getUuid());
+            dungeoneer.setDungeonHandle(handle);
+        }
+        index.setPlayerDungeon(playerRef.getUuid(), handle);
+
+        Ref<EntityStore> dungeonRef = DungeonFinder.resolveDungeon(dungeoneer, commandBuffer);
+        if (dungeonRef != null) {
+            DungeonComponent dungeon = commandBuffer.getComponent(dungeonRef, DungeonComponent.getComponentType());
+            if (dungeon != null) {
+                dungeon.addDungeoneerRef(ref);
+            }
+        }
     }
 }
@@ -0,0 +1,268 @@
+package com.chocolate.machine.dungeon.system;
+
+import com.chocolate.machine.dungeon.DungeonModule;
+import com.chocolate.machine.dungeon.component.SpawnerComponent;
+import com.chocolate.machine.dungeon.component.actions.BigFreakingHammerComponent;
+import com.chocolate.machine.dungeon.component.actions.HydraulicPressActionComponent;
+import com.chocolate.machine.dungeon.component.actions.LaserBeamComponent;
+import com.chocolate.machine.dungeon.component.actions.LaserTrapActionComponent;
+import com.chocolate.machine.dungeon.component.actions.SawBladeComponent;
+import com.chocolate.machine.dungeon.component.actions.SkeletonActionComponent;
+import com.chocolate.machine.dungeon.spawnable.Spawnable;
+import com.chocolate.machine.dungeon.spawnable.actions.ArcherAction;
+import com.chocolate.machine.dungeon.spawnable.actions.BeamTrap;
+import com.chocolate.machine.dungeon.spawnable.actions.BruteAction;
+import com.chocolate.machine.dungeon.spawnable.actions.GolemAction;
+import com.chocolate.machine.dungeon.spawnable.actions.HammerTrap;
+import com.chocolate.machine.dungeon.spawnable.actions.HydraulicPressTrap;
+import com.chocolate.machine.dungeon.spawnable.actions.LaserTrap;
+import com.chocolate.machine.dungeon.spawnable.actions.SawBladeTrap;
+import com.hypixel.hytale.component.ArchetypeChunk;
+import com.hypixel.hytale.component.CommandBuffer;
+import com.hypixel.hytale.component.Component;
+import com.hypixel.hytale.component.ComponentType;
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.component.dependency.Dependency;
+import com.hypixel.hytale.component.dependency.Order;
+import com.hypixel.hytale.component.dependency.SystemDependency;
+import com.hypixel.hytale.component.query.Query;
+import com.hypixel.hytale.component.system.tick.EntityTickingSystem;
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+// one ticking system per trap action component. DungeonTickSystem picks the spawners near dungeoneers
+// of active dungeons and marks them due, these run after it and tick the due ones with the action
+// component read straight from the archetype chunk
+public final class SpawnerActionSystem {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    private SpawnerActionSystem() {}
+
+    // one entry per ticker below, component types are only assigned at registration so they are read lazily
+    private static final List<Supplier<ComponentType<EntityStore, ?>>> ACTION_TYPES = List.of(
+            BigFreakingHammerComponent::getComponentType,
+            SawBladeComponent::getComponentType,
+            HydraulicPressActionComponent::getComponentType,
+            LaserBeamComponent::getComponentType,
+            LaserTrapActionComponent::getComponentType,
+            SkeletonActionComponent::getComponentType);
+
+    // true if one of the tickers here will pick the spawner up when it is marked due
+    public static boolean hasActionComponent(@Nonnull Ref<EntityStore> spawnerRef,
+            @Nonnull CommandBuffer<EntityStore> commandBuffer) {
+        for (int i = 0; i < ACTION_TYPES.size(); i++) {
+            if (commandBuffer.getComponent(spawnerRef, ACTION_TYPES.get(i).get()) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private abstract static class ActionTicker<C extends Component<EntityStore>> extends EntityTickingSystem<EntityStore> {
+
+        @Nonnull
+        abstract ComponentType<EntityStore, C> getActionType();
+
+        // false when the spawner's spawnable is not the one this system drives
+        abstract boolean tickAction(float dt, @Nonnull Ref<EntityStore> spawnerRef, @Nonnull Spawnable spawnable,
+                @Nonnull C state, @Nonnull CommandBuffer<EntityStore> commandBuffer);
+
+        // seconds until a phased trap needs to run again, see Spawnable.hasPhaseSchedule
+        float getNextPhaseDelay(@Nonnull Spawnable spawnable, @Nonnull C state) {
+            return 0f;
+        }
+
+        @Nonnull
+        @Override
+        public Query<EntityStore> getQuery() {
+            return Query.and(SpawnerComponent.getComponentType(), getActionType());
+        }
+
+        @Nonnull
+        @Override
+        public Set<Dependency<EntityStore>> getDependencies() {
+            return Set.of(new SystemDependency<>(Order.AFTER, DungeonTickSystem.class));
+        }
+
+        @Override
+        public void tick(float dt, int index, ArchetypeChunk<EntityStore> chunk,
+                Store<EntityStore> store, CommandBuffer<EntityStore> commandBuffer) {
+
+            SpawnerComponent spawner = chunk.getComponent(index, SpawnerComponent.getComponentType());
+            if (spawner == null || !spawner.consumeTickDue()) {
+                return;
+            }
+
+            C state = chunk.getComponent(index, getActionType());
+            Spawnable spawnable = spawner.getSpawnable();
+            if (state == null || spawnable == null) {
+                return;
+            }
+
+            // phased traps catch up on everything since they last ran, the rest get the frame dt
+            float delta = spawner.getDueDelta();
+            Ref<EntityStore> spawnerRef = chunk.getReferenceTo(index);
+            try {
+                if (!tickAction(delta, spawnerRef, spawnable, state, commandBuffer)) {
+                    spawnable.tick(delta, spawnerRef, commandBuffer);
+                }
+                if (spawnable.hasPhaseSchedule()) {
+                    spawner.setNextPhaseDelay(getNextPhaseDelay(spawnable, state));
+                }
+            } catch (Exception e) {
+                LOGGER.atSevere().log("tick failed for spawner '%s': %s", spawner.getExecutionId(), e.getMessage());
+            }
+        }
+
+        // spawners of different dungeons never touch each other, same rule as DungeonTickSystem
+        @Override
+        public boolean isParallel(int archetypeChunkSize, int taskCount) {
+            DungeonModule module = DungeonModule.get();
+            return module != null && module.getConfig().isParallelDungeonTicks()
+                    && EntityTickingSystem.maybeUseParallel(archetypeChunkSize, taskCount);
+        }
+    }
+
+    // the wrapper for traps whose spawnable is a single class with a typed tick for the component
+    private abstract static class TrapTicker<S extends Spawnable, C extends Component<EntityStore>> extends ActionTicker<C> {
+
+        interface TrapTick<S, C> {
+            void tick(@Nonnull S trap, float dt, @Nonnull Ref<EntityStore> spawnerRef, @Nonnull C state,
+                    @Nonnull CommandBuffer<EntityStore> commandBuffer);
+        }
+
+        interface PhaseDelay<S, C> {
+            float get(@Nonnull S trap, @Nonnull C state);
+        }
+
+        private final Class<S> trapClass;
+        private final TrapTick<S, C> trapTick;
+        @Nullable
+        private final PhaseDelay<S, C> phaseDelay;
+
+        TrapTicker(@Nonnull Class<S> trapClass, @Nonnull TrapTick<S, C> trapTick, @Nullable PhaseDelay<S, C> phaseDelay) {
+            this.trapClass = trapClass;
+            this.trapTick = trapTick;
+            this.phaseDelay = phaseDelay;
+        }
+
+        @Override
+        final boolean tickAction(float dt, @Nonnull Ref<EntityStore> spawnerRef, @Nonnull Spawnable spawnable,
+                @Nonnull C state, @Nonnull CommandBuffer<EntityStore> commandBuffer) {
+            if (!trapClass.isInstance(spawnable)) {
+                return false;
+            }
+            trapTick.tick(trapClass.cast(spawnable), dt, spawnerRef, state, commandBuffer);
+            return true;
+        }
+
+        @Override
+        final float getNextPhaseDelay(@Nonnull Spawnable spawnable, @Nonnull C state) {
+            return phaseDelay != null && trapClass.isInstance(spawnable)
+                    ? phaseDelay.get(trapClass.cast(spawnable), state)
+                    : 0f;
+        }
+    }
+
+    public static class Hammers extends TrapTicker<HammerTrap, BigFreakingHammerComponent> {
+
+        public Hammers() {
+            super(HammerTrap.class, HammerTrap::tick, HammerTrap::getNextPhaseDelay);
+        }
+
+        @Nonnull
+        @Override
+        ComponentType<EntityStore, BigFreakingHammerComponent> getActionType() {
+            return BigFreakingHammerComponent.getComponentType();
+        }
+    }
+
+    public static class SawBlades extends TrapTicker<SawBladeTrap, SawBladeComponent> {
+
+        public SawBlades() {
+            super(SawBladeTrap.class, SawBladeTrap::tick, SawBladeTrap::getNextPhaseDelay);
+        }
+
+        @Nonnull
+        @Override
+        ComponentType<EntityStore, SawBladeComponent> getActionType() {
+            return SawBladeComponent.getComponentType();
+        }
+    }
+
+    public static class Presses extends TrapTicker<HydraulicPressTrap, HydraulicPressActionComponent> {
+
+        public Presses() {
+            super(HydraulicPressTrap.class, HydraulicPressTrap::tick, HydraulicPressTrap::getNextPhaseDelay);
+        }
+
+        @Nonnull
+        @Override
+        ComponentType<EntityStore, HydraulicPressActionComponent> getActionType() {
+            return HydraulicPressActionComponent.getComponentType();
+        }
+    }
+
+    public static class Beams extends TrapTicker<BeamTrap, LaserBeamComponent> {
+
+        public Beams() {
+            super(BeamTrap.class, BeamTrap::tick, null);
+        }
+
+        @Nonnull
+        @Override
+        ComponentType<EntityStore, LaserBeamComponent> getActionType() {
+            return LaserBeamComponent.getComponentType();
+        }
+    }
+
+    public static class Lasers extends TrapTicker<LaserTrap, LaserTrapActionComponent> {
+
+        public Lasers() {
+            super(LaserTrap.class, LaserTrap::tick, null);
+        }
+
+        @Nonnull
+        @Override
+        ComponentType<EntityStore, LaserTrapActionComponent> getActionType() {
+            return LaserTrapActionComponent.getComponentType();
+        }
+    }
+
+    // golem, archer and brute share the component and differ only in the NPC role they spawn
+    public static class Skeletons extends ActionTicker<SkeletonActionComponent> {
+
+        @Nonnull
+        @Override
+        ComponentType<EntityStore, SkeletonActionComponent> getActionType() {
+            return SkeletonActionComponent.getComponentType();
+        }
+
+        @Override
+        boolean tickAction(float dt, @Nonnull Ref<EntityStore> spawnerRef, @Nonnull Spawnable spawnable,
+                @Nonnull SkeletonActionComponent state, @Nonnull CommandBuffer<EntityStore> commandBuffer) {
+            // already spawned is the common case, settle it before looking at the spawnable
+            if (!state.isActive() || state.hasSpawned()) {
+                return true;
+            }
+            if (spawnable instanceof GolemAction) {
+                ((GolemAction) spawnable).tick(dt, spawnerRef, state, commandBuffer);
+            } else if (spawnable instanceof ArcherAction) {
+                ((ArcherAction) spawnable).tick(dt, spawnerRef, state, commandBuffer);
+            } else if (spawnable instanceof BruteAction) {
+                ((BruteAction) spawnable).tick(dt, spawnerRef, state, commandBuffer);
+            } else {
+                return false;
+            }
+            return true;
+        }
+    }
+}
@@ -2,18 +2,26 @@ package com.chocolate.machine.utils;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import com.chocolate.machine.dungeon.component.DungeonComponent;
+import com.chocolate.machine.dungeon.component.DungeoneerComponent;
+import com.chocolate.machine.dungeon.component.SpawnerComponent;
+import com.chocolate.machine.dungeon.resource.DungeonEntranceRegistry;
+import com.chocolate.machine.dungeon.resource.DungeonIndex;
+import com.chocolate.machine.dungeon.resource.DungeonNetworkGraph;
 import com.hypixel.hytale.component.ComponentAccessor;
 import com.hypixel.hytale.component.Ref;
 import com.hypixel.hytale.component.ResourceType;
 import com.hypixel.hytale.component.spatial.SpatialResource;
 import com.hypixel.hytale.math.vector.Vector3d;
+import com.hypixel.hytale.server.core.entity.UUIDComponent;
 import com.hypixel.hytale.server.core.modules.entity.EntityModule;
 import com.hypixel.hytale.server.core.modules.entity.component.TransformComponent;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 
 public class DungeonFinder {
@@ -34,6 +42,11 @@ public class DungeonFinder {
             @Nonnull ComponentAccessor<EntityStore> accessor,
             double searchRadius) {
 
+        DungeonIndex index = getDungeonIndex(accessor);
+        if (index != null) {
+            return index.findNearest(position, searchRadius);
+        }
+
         EntityModule entityModule = EntityModule.get();
         if (entityModule == null) {
             return null;
@@ -95,6 +108,11 @@ public class DungeonFinder {
 
         List<Ref<EntityStore>> result = new ArrayList<>();
 
+        DungeonIndex index = getDungeonIndex(accessor);
+        if (index != null) {
+            return index.findInRange(position, searchRadius, result);
+        }
+
         EntityModule entityModule = EntityModule.get();
         if (entityModule == null) {
             return result;
@@ -142,12 +160,111 @@ public class DungeonFinder {
         return allDungeons;
     }
 
+    // controller with the given dungeon id, the closest one to near if the id is somehow shared
+    @Nullable
+    public static Ref<EntityStore> findDungeonById(
+            @Nonnull String dungeonId,
+            @Nonnull Vector3d near,
+            @Nonnull ComponentAccessor<EntityStore> accessor) {
+
+        DungeonIndex index = getDungeonIndex(accessor);
+        if (index != null) {
+            return index.findById(dungeonId, near);
+        }
+
+        Ref<EntityStore> nearest = findNearestDungeon(near, accessor);
+        if (nearest == null) {
+            return null;
+        }
+        DungeonComponent dungeon = accessor.getComponent(nearest, DungeonComponent.getComponentType());
+        return dungeon != null && dungeon.getDungeonId().equals(dungeonId) ? nearest : null;
+    }
+
+    @Nullable
+    private static DungeonIndex getDungeonIndex(@Nonnull ComponentAccessor<EntityStore> accessor) {
+        ResourceType<EntityStore, DungeonIndex> indexType = DungeonIndex.getResourceType();
+        return indexType != null ? accessor.getResource(indexType) : null;
+    }
+
+    // ties a dungeoneer to a controller by ref for this session and by controller UUID for later ones
+    public static void bindDungeoneer(
+            @Nonnull Ref<EntityStore> playerRef,
+            @Nonnull DungeoneerComponent dungeoneer,
+            @Nullable Ref<EntityStore> dungeonRef,
+            @Nonnull ComponentAccessor<EntityStore> accessor) {
+
+        UUID handle = null;
+        if (dungeonRef != null && dungeonRef.isValid()) {
+            UUIDComponent uuidComponent = accessor.getComponent(dungeonRef, UUIDComponent.getComponentType());
+            handle = uuidComponent != null ? uuidComponent.getUuid() : null;
+        }
+        dungeoneer.setDungeonRef(dungeonRef);
+        dungeoneer.setDungeonHandle(handle);
+
+        DungeonIndex index = getDungeonIndex(accessor);
+        PlayerRef player = accessor.getComponent(playerRef, PlayerRef.getComponentType());
+        if (index != null && player != null) {
+            index.setPlayerDungeon(player.getUuid(), handle);
+        }
+    }
+
+    // the dungeoneer's controller: the cached ref while it is live, otherwise looked up by its UUID
+    // through the index and cached again. null when the dungeon no longer exists
+    @Nullable
+    public static Ref<EntityStore> resolveDungeon(
+            @Nonnull DungeoneerComponent dungeoneer,
+            @Nonnull ComponentAccessor<EntityStore> accessor) {
+
+        Ref<EntityStore> dungeonRef = dungeoneer.getDungeonRef();
+        if (dungeonRef != null && dungeonRef.isValid()) {
+            return dungeonRef;
+        }
+
+        UUID handle = dungeoneer.getDungeonHandle();
+        DungeonIndex index = getDungeonIndex(accessor);
+        if (handle == null || index == null) {
+            return null;
+        }
+        dungeonRef = index.findByHandle(handle);
+        if (dungeonRef != null) {
+            dungeoneer.setDungeonRef(dungeonRef);
+        }
+        return dungeonRef;
+    }
+
+    // spawners of the networks around an entity, answered from the network graph when it is available
+    @Nonnull
+    public static List<Ref<EntityStore>> findNetworkSpawners(
+            @Nonnull Ref<EntityStore> ref,
+            @Nonnull ComponentAccessor<EntityStore> accessor,
+            @Nonnull List<Ref<EntityStore>> out) {
+
+        TransformComponent transform = accessor.getComponent(ref, TransformComponent.getComponentType());
+        if (transform == null) {
+            return out;
+        }
+
+        DungeonNetworkGraph graph = DungeonNetworkGraph.getResourceType() != null
+                ? accessor.getResource(DungeonNetworkGraph.getResourceType())
+                : null;
+        if (graph == null) {
+            return EntityFloodFill.floodFillSpawners(ref, accessor, SpawnerComponent.getComponentType(), out);
+        }
+        return graph.collectNear(transform.getPosition(), DungeonNetworkGraph.SPAWNER, out);
+    }
+
     @Nullable
     public static Ref<EntityStore> findNearestEntrance(
             @Nonnull Vector3d position,
             @Nonnull ComponentAccessor<EntityStore> accessor,
             double searchRadius) {
 
+        ResourceType<EntityStore, DungeonEntranceRegistry> registryType = DungeonEntranceRegistry.getResourceType();
+        DungeonEntranceRegistry registry = registryType != null ? accessor.getResource(registryType) : null;
+        if (registry != null) {
+            return registry.findNearest(position, searchRadius);
+        }
+
         EntityModule entityModule = EntityModule.get();
         if (entityModule == null) {
             return null;
@@ -1,30 +1,38 @@
 package com.chocolate.machine.utils;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
 import java.util.List;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
+import com.chocolate.machine.config.MachineConfig;
+import com.chocolate.machine.dungeon.DungeonModule;
 import com.hypixel.hytale.component.Component;
 import com.hypixel.hytale.component.ComponentAccessor;
 import com.hypixel.hytale.component.ComponentType;
 import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.component.query.Query;
 import com.hypixel.hytale.component.spatial.SpatialResource;
 import com.hypixel.hytale.math.vector.Vector3d;
 import com.hypixel.hytale.server.core.modules.entity.EntityModule;
 import com.hypixel.hytale.server.core.modules.entity.component.TransformComponent;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 
-import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 
 public class EntityFloodFill {
     private static final Double RADIUS = 100.0;
 
+    // the first collect covers this many hops and is doubled while the network reaches its edge.
+    // only entities not seen by an earlier collect are looked at again, networks reaching past
+    // MAX_REACH_FACTOR hops go to the hop-by-hop search
+    private static final double INITIAL_REACH_FACTOR = 2.0;
+    private static final double MAX_REACH_FACTOR = 16.0;
 
-    private static final ThreadLocal<ObjectArrayList<Ref<EntityStore>>> NEARBY_LIST = ThreadLocal
-            .withInitial(ObjectArrayList::new);
+    // bit of the first (network) type in a candidate's type mask
+    private static final int NETWORK_MASK = 1;
 
     public static <T extends Component<EntityStore>> List<Ref<EntityStore>> floodFillSpawners(
             @Nonnull Ref<EntityStore> startRef,
@@ -42,14 +50,35 @@ public class EntityFloodFill {
             @Nonnull ComponentType<EntityStore, T> componentType,
             @Nonnull Double radius) {
 
+        return floodFillSpawners(startRef, accessor, componentType, radius, new ObjectArrayList<>());
+    }
+
+    @Nonnull
+    public static <T extends Component<EntityStore>> List<Ref<EntityStore>> floodFillSpawners(
+            @Nonnull Ref<EntityStore> startRef,
+            @Nonnull ComponentAccessor<EntityStore> accessor,
+            @Nonnull ComponentType<EntityStore, T> componentType,
+            @Nonnull List<Ref<EntityStore>> out) {
+
+        return floodFillSpawners(startRef, accessor, componentType, RADIUS, out);
+    }
+
+    // same, appending into a caller-owned list
+    @Nonnull
+    public static <T extends Component<EntityStore>> List<Ref<EntityStore>> floodFillSpawners(
+            @Nonnull Ref<EntityStore> startRef,
+            @Nonnull ComponentAccessor<EntityStore> accessor,
+            @Nonnull ComponentType<EntityStore, T> componentType,
+            double radius,
+            @Nonnull List<Ref<EntityStore>> out) {
+
         TransformComponent transform = accessor.getComponent(startRef, TransformComponent.getComponentType());
         if (transform == null) {
-            return new ObjectArrayList<>();
+            return out;
         }
-        return floodFillFromPosition(transform.getPosition(), accessor, componentType, radius);
+        return floodFillFromPosition(transform.getPosition(), accessor, componentType, radius, out);
     }
 
-    // finds all entities with the specified component within radius using spatial BFS from a position
     @Nonnull
     public static <T extends Component<EntityStore>> List<Ref<EntityStore>> floodFillFromPosition(
             @Nonnull Vector3d startPosition,
@@ -57,32 +86,396 @@ public class EntityFloodFill {
             @Nonnull ComponentType<EntityStore, T> componentType,
             @Nonnull Double radius) {
 
-        ObjectArrayList<Ref<EntityStore>> result = new ObjectArrayList<>();
-        IntOpenHashSet visitedIndices = new IntOpenHashSet();
-        Deque<Vector3d> positionQueue = new ArrayDeque<>();
+        return floodFillFromPosition(startPosition, accessor, componentType, radius, new ObjectArrayList<>());
+    }
+
+    // finds all entities with the specified component reachable from a position in hops of at most radius,
+    // appending them to out. one spatial collect around the start, candidates bucketed into a grid of
+    // radius-sized cells and joined with union-find, result is the component the start position belongs to.
+    // if that component runs up against the edge of the collected area the area is widened,
+    // and as a last resort the hop-by-hop search is used.
+    // scratch state lives in the thread's FloodFillContext, so with a reused out list nothing is allocated
+    @Nonnull
+    public static <T extends Component<EntityStore>> List<Ref<EntityStore>> floodFillFromPosition(
+            @Nonnull Vector3d startPosition,
+            @Nonnull ComponentAccessor<EntityStore> accessor,
+            @Nonnull ComponentType<EntityStore, T> componentType,
+            double radius,
+            @Nonnull List<Ref<EntityStore>> out) {
+
+        SpatialResource<Ref<EntityStore>, EntityStore> entitySpatial = getEntitySpatial(accessor);
+        if (entitySpatial == null) {
+            return out;
+        }
+
+        FloodFillContext context = FloodFillContext.acquire();
+        try {
+            context.types.add(componentType);
+            if (findComponent(context, startPosition, accessor, radius, entitySpatial)) {
+                IntArrayList members = context.members;
+                for (int i = 0; i < members.size(); i++) {
+                    out.add(context.candidates.get(members.getInt(i)));
+                }
+                return out;
+            }
+            return floodFillBfs(context, startPosition, accessor, componentType, radius, entitySpatial, out);
+        } finally {
+            context.release();
+        }
+    }
+
+    // one traversal for several component types. the first type forms the network exactly like
+    // floodFillFromPosition, every other type is picked up when it sits within radius of the start or of
+    // a network member. attached entities never bridge two parts of the network.
+    // an entity carrying more than one of the types is listed under each of them
+    @Nonnull
+    public static FloodFillGroups discover(
+            @Nonnull Vector3d startPosition,
+            @Nonnull ComponentAccessor<EntityStore> accessor,
+            double radius,
+            @Nonnull FloodFillGroups out) {
+
+        SpatialResource<Ref<EntityStore>, EntityStore> entitySpatial = getEntitySpatial(accessor);
+        if (entitySpatial == null) {
+            return out;
+        }
+
+        FloodFillContext context = FloodFillContext.acquire();
+        try {
+            context.types.addAll(out.getTypes());
+            if (findComponent(context, startPosition, accessor, radius, entitySpatial)) {
+                IntArrayList members = context.members;
+                for (int i = 0; i < members.size(); i++) {
+                    int node = members.getInt(i);
+                    int mask = context.masks.getInt(node);
+                    for (int type = 0; type < out.getTypeCount(); type++) {
+                        if ((mask & (1 << type)) != 0) {
+                            out.get(type).add(context.candidates.get(node));
+                        }
+                    }
+                }
+                return out;
+            }
 
-        positionQueue.add(startPosition);
+            floodFillBfs(context, startPosition, accessor, out.getTypes().get(0), radius, entitySpatial, out.get(0));
+            attachBfs(context, startPosition, accessor, radius, entitySpatial, out);
+            return out;
+        } finally {
+            context.release();
+        }
+    }
 
+    @Nullable
+    private static SpatialResource<Ref<EntityStore>, EntityStore> getEntitySpatial(
+            @Nonnull ComponentAccessor<EntityStore> accessor) {
         EntityModule entityModule = EntityModule.get();
         if (entityModule == null) {
-            return result;
+            return null;
         }
-        SpatialResource<Ref<EntityStore>, EntityStore> entitySpatial = accessor
-                .getResource(entityModule.getEntitySpatialResourceType());
-        if (entitySpatial == null) {
-            return result;
+        return accessor.getResource(entityModule.getEntitySpatialResourceType());
+    }
+
+    // union-find over context.types, widening the collect while the result may be cut off.
+    // on success context.members holds the candidate indices of the start's component
+    private static boolean findComponent(
+            @Nonnull FloodFillContext context,
+            @Nonnull Vector3d start,
+            @Nonnull ComponentAccessor<EntityStore> accessor,
+            double radius,
+            @Nonnull SpatialResource<Ref<EntityStore>, EntityStore> entitySpatial) {
+
+        context.nearby.clear();
+        context.candidates.clear();
+        context.masks.clear();
+        context.xs.clear();
+        context.ys.clear();
+        context.zs.clear();
+        context.newVisitGeneration();
+
+        // the start position is node 0, it links like a network member
+        addCandidate(context, null, NETWORK_MASK, start);
+
+        // every matching entity of the store is known up front, so the component can't be cut off
+        Store<EntityStore> store = useArchetypeDiscovery() ? getStore(accessor) : null;
+        if (store != null) {
+            collectByArchetype(context, store);
+            return connectedComponent(context, start, radius, Double.POSITIVE_INFINITY);
+        }
+
+        double reach = radius * INITIAL_REACH_FACTOR;
+        double maxReach = radius * MAX_REACH_FACTOR;
+        while (true) {
+            if (!collectCandidates(context, start, accessor, reach, entitySpatial)) {
+                return false;
+            }
+            if (connectedComponent(context, start, radius, reach)) {
+                return true;
+            }
+            if (reach >= maxReach) {
+                return false;
+            }
+            reach = Math.min(reach * 2, maxReach);
+        }
+    }
+
+    // adds the matching entities within reach that earlier collects did not see. false if one has no
+    // transform, the union-find can't place it so the hop-by-hop search takes over
+    private static boolean collectCandidates(
+            @Nonnull FloodFillContext context,
+            @Nonnull Vector3d start,
+            @Nonnull ComponentAccessor<EntityStore> accessor,
+            double reach,
+            @Nonnull SpatialResource<Ref<EntityStore>, EntityStore> entitySpatial) {
+
+        ObjectArrayList<Ref<EntityStore>> nearby = context.nearby;
+        List<ComponentType<EntityStore, ?>> types = context.types;
+        nearby.clear();
+        entitySpatial.getSpatialStructure().collect(start, reach, nearby);
+
+        try {
+            for (int i = 0; i < nearby.size(); i++) {
+                Ref<EntityStore> candidate = nearby.get(i);
+                if (!candidate.isValid() || !context.visit(candidate.getIndex())) {
+                    continue;
+                }
+                int mask = 0;
+                for (int type = 0; type < types.size(); type++) {
+                    if (accessor.getComponent(candidate, types.get(type)) != null) {
+                        mask |= 1 << type;
+                    }
+                }
+                if (mask == 0) {
+                    continue;
+                }
+                TransformComponent transform = accessor.getComponent(candidate, TransformComponent.getComponentType());
+                if (transform == null) {
+                    return false;
+                }
+                addCandidate(context, candidate, mask, transform.getPosition());
+            }
+            return true;
+        } finally {
+            nearby.clear();
+        }
+    }
+
+    // false if the component may continue past the collected area
+    private static boolean connectedComponent(
+            @Nonnull FloodFillContext context,
+            @Nonnull Vector3d start,
+            double radius,
+            double reach) {
+
+        int n = context.candidates.size();
+        context.members.clear();
+        context.ensureNodes(n);
+        int[] parent = context.parent;
+        int[] next = context.next;
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+        }
+
+        // network nodes go into the grid, each only linking to nodes inserted before it
+        double radiusSq = radius * radius;
+        context.cellHead.clear();
+
+        for (int i = 0; i < n; i++) {
+            if ((context.masks.getInt(i) & NETWORK_MASK) == 0) {
+                continue;
+            }
+            double x = context.xs.getDouble(i);
+            double y = context.ys.getDouble(i);
+            double z = context.zs.getDouble(i);
+            int cellX = (int) Math.floor(x / radius);
+            int cellY = (int) Math.floor(y / radius);
+            int cellZ = (int) Math.floor(z / radius);
+
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dz = -1; dz <= 1; dz++) {
+                        int j = context.cellHead.get(PackedBlockPos.pack(cellX + dx, cellY + dy, cellZ + dz));
+                        while (j != -1) {
+                            double ox = context.xs.getDouble(j) - x;
+                            double oy = context.ys.getDouble(j) - y;
+                            double oz = context.zs.getDouble(j) - z;
+                            if (ox * ox + oy * oy + oz * oz <= radiusSq) {
+                                union(parent, i, j);
+                            }
+                            j = next[j];
+                        }
+                    }
+                }
+            }
+
+            long cell = PackedBlockPos.pack(cellX, cellY, cellZ);
+            next[i] = context.cellHead.get(cell);
+            context.cellHead.put(cell, i);
+        }
+
+        int startRoot = find(parent, 0);
+        double edge = reach - radius;
+        for (int i = 1; i < n; i++) {
+            double x = context.xs.getDouble(i);
+            double y = context.ys.getDouble(i);
+            double z = context.zs.getDouble(i);
+
+            if ((context.masks.getInt(i) & NETWORK_MASK) != 0) {
+                if (find(parent, i) != startRoot) {
+                    continue;
+                }
+                double ox = x - start.getX();
+                double oy = y - start.getY();
+                double oz = z - start.getZ();
+                if (ox * ox + oy * oy + oz * oz > edge * edge) {
+                    return false;
+                }
+                context.members.add(i);
+            } else if (isNearComponent(context, parent, startRoot, x, y, z, radius)) {
+                context.members.add(i);
+            }
+        }
+
+        return true;
+    }
+
+    // archetype mode: only chunks holding one of the searched components are walked, so the cost follows
+    // the number of matching entities rather than how crowded the area is. there is no reach, distance
+    // only matters to the union-find
+    private static void collectByArchetype(
+            @Nonnull FloodFillContext context,
+            @Nonnull Store<EntityStore> store) {
+
+        List<ComponentType<EntityStore, ?>> types = context.types;
+
+        for (int searched = 0; searched < types.size(); searched++) {
+            store.forEachChunk(Query.and(types.get(searched), TransformComponent.getComponentType()),
+                    (chunk, commandBuffer) -> {
+                        for (int i = 0; i < chunk.size(); i++) {
+                            TransformComponent transform = chunk.getComponent(i, TransformComponent.getComponentType());
+                            if (transform == null) {
+                                continue;
+                            }
+                            Ref<EntityStore> candidate = chunk.getReferenceTo(i);
+                            if (candidate == null || !candidate.isValid() || !context.visit(candidate.getIndex())) {
+                                continue;
+                            }
+                            // an entity seen under an earlier type is skipped above, so take all its bits now
+                            int mask = 0;
+                            for (int type = 0; type < types.size(); type++) {
+                                if (chunk.getComponent(i, types.get(type)) != null) {
+                                    mask |= 1 << type;
+                                }
+                            }
+                            addCandidate(context, candidate, mask, transform.getPosition());
+                        }
+                    });
+        }
+    }
+
+    private static void addCandidate(
+            @Nonnull FloodFillContext context,
+            @Nullable Ref<EntityStore> candidate,
+            int mask,
+            @Nonnull Vector3d position) {
+        context.candidates.add(candidate);
+        context.masks.add(mask);
+        context.xs.add(position.getX());
+        context.ys.add(position.getY());
+        context.zs.add(position.getZ());
+    }
+
+    private static boolean useArchetypeDiscovery() {
+        DungeonModule module = DungeonModule.get();
+        return module != null
+                && module.getConfig().getDiscoveryMode() == MachineConfig.DiscoveryMode.ARCHETYPE;
+    }
+
+    // only a caller holding the store can walk it. a command buffer means we are inside a system's
+    // tick, where the live store must not be iterated, so those searches stay spatial
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private static Store<EntityStore> getStore(@Nonnull ComponentAccessor<EntityStore> accessor) {
+        return accessor instanceof Store ? (Store<EntityStore>) accessor : null;
+    }
+
+    // attached node check: any network node of the start's component within radius
+    private static boolean isNearComponent(
+            @Nonnull FloodFillContext context,
+            @Nonnull int[] parent,
+            int root,
+            double x, double y, double z,
+            double radius) {
+
+        double radiusSq = radius * radius;
+        int cellX = (int) Math.floor(x / radius);
+        int cellY = (int) Math.floor(y / radius);
+        int cellZ = (int) Math.floor(z / radius);
+
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    int j = context.cellHead.get(PackedBlockPos.pack(cellX + dx, cellY + dy, cellZ + dz));
+                    while (j != -1) {
+                        double ox = context.xs.getDouble(j) - x;
+                        double oy = context.ys.getDouble(j) - y;
+                        double oz = context.zs.getDouble(j) - z;
+                        if (ox * ox + oy * oy + oz * oz <= radiusSq && find(parent, j) == root) {
+                            return true;
+                        }
+                        j = context.next[j];
+                    }
+                }
+            }
         }
+        return false;
+    }
 
-        ObjectArrayList<Ref<EntityStore>> nearby = NEARBY_LIST.get();
-        if (nearby == null) {
-            nearby = new ObjectArrayList<>();
+    private static int find(@Nonnull int[] parent, int node) {
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]];
+            node = parent[node];
         }
+        return node;
+    }
 
-        while (!positionQueue.isEmpty()) {
-            Vector3d currentPos = positionQueue.poll();
+    private static void union(@Nonnull int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA != rootB) {
+            parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+        }
+    }
+
+    // hop-by-hop search: collect around the start, then around every match found
+    @Nonnull
+    private static <T extends Component<EntityStore>> List<Ref<EntityStore>> floodFillBfs(
+            @Nonnull FloodFillContext context,
+            @Nonnull Vector3d startPosition,
+            @Nonnull ComponentAccessor<EntityStore> accessor,
+            @Nonnull ComponentType<EntityStore, T> componentType,
+            double radius,
+            @Nonnull SpatialResource<Ref<EntityStore>, EntityStore> entitySpatial,
+            @Nonnull List<Ref<EntityStore>> out) {
+
+        ObjectArrayList<Ref<EntityStore>> nearby = context.nearby;
+        Vector3d probe = context.probe;
+        context.newVisitGeneration();
+        context.queueX.clear();
+        context.queueY.clear();
+        context.queueZ.clear();
+        context.queueHead = 0;
+
+        // positions are copied into the queue, live transform vectors may move while we search
+        context.enqueue(startPosition.getX(), startPosition.getY(), startPosition.getZ());
+
+        while (context.hasQueued()) {
+            int head = context.queueHead++;
+            probe.x = context.queueX.getDouble(head);
+            probe.y = context.queueY.getDouble(head);
+            probe.z = context.queueZ.getDouble(head);
 
             nearby.clear();
-            entitySpatial.getSpatialStructure().collect(currentPos, radius, nearby);
+            entitySpatial.getSpatialStructure().collect(probe, radius, nearby);
 
             for (int i = 0; i < nearby.size(); i++) {
                 Ref<EntityStore> candidate = nearby.get(i);
@@ -91,23 +484,75 @@ public class EntityFloodFill {
                     continue;
                 }
 
-                int index = candidate.getIndex();
-                if (visitedIndices.contains(index)) {
+                if (accessor.getComponent(candidate, componentType) == null) {
                     continue;
                 }
 
-                if (accessor.getComponent(candidate, componentType) != null) {
-                    visitedIndices.add(index);
-                    result.add(candidate);
+                if (!context.visit(candidate.getIndex())) {
+                    continue;
+                }
+                out.add(candidate);
 
-                    TransformComponent transform = accessor.getComponent(candidate, TransformComponent.getComponentType());
-                    if (transform != null) {
-                        positionQueue.add(transform.getPosition());
-                    }
+                TransformComponent transform = accessor.getComponent(candidate, TransformComponent.getComponentType());
+                if (transform != null) {
+                    Vector3d position = transform.getPosition();
+                    context.enqueue(position.getX(), position.getY(), position.getZ());
                 }
             }
         }
+        nearby.clear();
+
+        return out;
+    }
 
-        return result;
+    // fallback for the attached types of discover: one collect around the start and each network member
+    private static void attachBfs(
+            @Nonnull FloodFillContext context,
+            @Nonnull Vector3d startPosition,
+            @Nonnull ComponentAccessor<EntityStore> accessor,
+            double radius,
+            @Nonnull SpatialResource<Ref<EntityStore>, EntityStore> entitySpatial,
+            @Nonnull FloodFillGroups out) {
+
+        ObjectArrayList<Ref<EntityStore>> network = out.get(0);
+        ObjectArrayList<Ref<EntityStore>> nearby = context.nearby;
+        Vector3d probe = context.probe;
+        context.newVisitGeneration();
+
+        for (int source = -1; source < network.size(); source++) {
+            if (source < 0) {
+                probe.x = startPosition.getX();
+                probe.y = startPosition.getY();
+                probe.z = startPosition.getZ();
+            } else {
+                Ref<EntityStore> member = network.get(source);
+                TransformComponent transform = member.isValid()
+                        ? accessor.getComponent(member, TransformComponent.getComponentType())
+                        : null;
+                if (transform == null) {
+                    continue;
+                }
+                Vector3d position = transform.getPosition();
+                probe.x = position.getX();
+                probe.y = position.getY();
+                probe.z = position.getZ();
+            }
+
+            nearby.clear();
+            entitySpatial.getSpatialStructure().collect(probe, radius, nearby);
+
+            for (int i = 0; i < nearby.size(); i++) {
+                Ref<EntityStore> candidate = nearby.get(i);
+                if (!candidate.isValid() || !context.visit(candidate.getIndex())) {
+                    continue;
+                }
+                for (int type = 1; type < out.getTypeCount(); type++) {
+                    if (accessor.getComponent(candidate, out.getTypes().get(type)) != null) {
+                        out.get(type).add(candidate);
+                    }
+                }
+            }
+        }
+        nearby.clear();
     }
 }
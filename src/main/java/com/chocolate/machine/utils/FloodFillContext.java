@@ -0,0 +1,141 @@
+package com.chocolate.machine.utils;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+import com.hypixel.hytale.component.ComponentType;
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.math.vector.Vector3d;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+// per-thread scratch space for EntityFloodFill. everything is cleared and reused between calls,
+// so once the buffers have grown to fit the largest dungeon a flood fill allocates nothing
+public final class FloodFillContext {
+
+    private static final ThreadLocal<FloodFillContext> CONTEXT = ThreadLocal.withInitial(FloodFillContext::new);
+
+    private static final int NO_NODE = -1;
+
+    // spatial query results
+    final ObjectArrayList<Ref<EntityStore>> nearby = new ObjectArrayList<>();
+
+    // component types being searched for, the first one forms the network
+    final ObjectArrayList<ComponentType<EntityStore, ?>> types = new ObjectArrayList<>();
+
+    // matching entities, which of the types each carries, and their positions copied out of the transforms
+    final ObjectArrayList<Ref<EntityStore>> candidates = new ObjectArrayList<>();
+    final IntArrayList masks = new IntArrayList();
+    final DoubleArrayList xs = new DoubleArrayList();
+    final DoubleArrayList ys = new DoubleArrayList();
+    final DoubleArrayList zs = new DoubleArrayList();
+
+    // candidate indices of the start's component after a successful search
+    final IntArrayList members = new IntArrayList();
+
+    // union-find forest and grid buckets, cell -> first node with next[] chaining the rest
+    int[] parent = new int[64];
+    int[] next = new int[64];
+    final Long2IntOpenHashMap cellHead = new Long2IntOpenHashMap();
+
+    // hop-by-hop queue of positions, read from queueHead onwards
+    final DoubleArrayList queueX = new DoubleArrayList();
+    final DoubleArrayList queueY = new DoubleArrayList();
+    final DoubleArrayList queueZ = new DoubleArrayList();
+    int queueHead;
+
+    // reused as the centre of spatial queries
+    final Vector3d probe = new Vector3d(0, 0, 0);
+
+    // entity index -> generation it was last visited in, bumping the generation clears the set
+    private int[] visitStamps = new int[256];
+    private int generation;
+
+    private boolean inUse;
+
+    private FloodFillContext() {
+        cellHead.defaultReturnValue(NO_NODE);
+    }
+
+    // flood fills don't nest, a re-entrant call (e.g. from a component getter) gets a throwaway context
+    @Nonnull
+    static FloodFillContext acquire() {
+        FloodFillContext context = CONTEXT.get();
+        if (context.inUse) {
+            context = new FloodFillContext();
+        }
+        context.inUse = true;
+        context.reset();
+        return context;
+    }
+
+    void release() {
+        nearby.clear();
+        candidates.clear();
+        types.clear();
+        inUse = false;
+    }
+
+    private void reset() {
+        nearby.clear();
+        types.clear();
+        candidates.clear();
+        masks.clear();
+        members.clear();
+        xs.clear();
+        ys.clear();
+        zs.clear();
+        cellHead.clear();
+        queueX.clear();
+        queueY.clear();
+        queueZ.clear();
+        queueHead = 0;
+        newVisitGeneration();
+    }
+
+    void newVisitGeneration() {
+        generation++;
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(visitStamps, 0);
+            generation = 1;
+        }
+    }
+
+    // true the first time an entity index is seen in the current generation
+    boolean visit(int index) {
+        if (index < 0) {
+            return false;
+        }
+        if (index >= visitStamps.length) {
+            visitStamps = Arrays.copyOf(visitStamps, Math.max(index + 1, visitStamps.length * 2));
+        }
+        if (visitStamps[index] == generation) {
+            return false;
+        }
+        visitStamps[index] = generation;
+        return true;
+    }
+
+    void ensureNodes(int count) {
+        if (parent.length < count) {
+            int size = Math.max(count, parent.length * 2);
+            parent = new int[size];
+            next = new int[size];
+        }
+    }
+
+    void enqueue(double x, double y, double z) {
+        queueX.add(x);
+        queueY.add(y);
+        queueZ.add(z);
+    }
+
+    boolean hasQueued() {
+        return queueHead < queueX.size();
+    }
+}
@@ -0,0 +1,60 @@
+package com.chocolate.machine.utils;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import com.hypixel.hytale.component.ComponentType;
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+// results of EntityFloodFill.discover, one list per requested component type in request order.
+// the first type forms the network, the others are the entities attached to it
+public final class FloodFillGroups {
+
+    @Nonnull
+    private final List<ComponentType<EntityStore, ?>> types;
+    @Nonnull
+    private final ObjectArrayList<ObjectArrayList<Ref<EntityStore>>> groups = new ObjectArrayList<>();
+
+    public FloodFillGroups(@Nonnull List<ComponentType<EntityStore, ?>> types) {
+        if (types.isEmpty() || types.size() > Integer.SIZE) {
+            throw new IllegalArgumentException("Flood fill needs between 1 and 32 component types");
+        }
+        this.types = types;
+        for (int i = 0; i < types.size(); i++) {
+            groups.add(new ObjectArrayList<>());
+        }
+    }
+
+    @Nonnull
+    public List<ComponentType<EntityStore, ?>> getTypes() {
+        return types;
+    }
+
+    public int getTypeCount() {
+        return types.size();
+    }
+
+    @Nonnull
+    public ObjectArrayList<Ref<EntityStore>> get(int typeIndex) {
+        return groups.get(typeIndex);
+    }
+
+    @Nonnull
+    public ObjectArrayList<Ref<EntityStore>> get(@Nonnull ComponentType<EntityStore, ?> type) {
+        int index = types.indexOf(type);
+        if (index < 0) {
+            throw new IllegalArgumentException("Component type was not part of this flood fill");
+        }
+        return groups.get(index);
+    }
+
+    public void clear() {
+        for (int i = 0; i < groups.size(); i++) {
+            groups.get(i).clear();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.chocolate.machine.utils;
+
+// block positions packed into a long: 26 bits x, 26 bits z, 12 bits y (all signed)
+public final class PackedBlockPos {
+
+    private PackedBlockPos() {}
+
+    public static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    public static int unpackX(long packed) {
+        return (int) (packed >> 38);
+    }
+
+    public static int unpackY(long packed) {
+        return (int) (packed << 52 >> 52);
+    }
+
+    public static int unpackZ(long packed) {
+        return (int) (packed << 26 >> 38);
+    }
+}
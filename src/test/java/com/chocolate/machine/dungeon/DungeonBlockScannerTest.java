@@ -0,0 +1,117 @@
+package com.chocolate.machine.dungeon;
+
+import com.chocolate.machine.utils.PackedBlockPos;
+import com.hypixel.hytale.math.util.ChunkUtil;
+import com.hypixel.hytale.server.core.universe.world.chunk.BlockChunk;
+import com.hypixel.hytale.server.core.universe.world.chunk.WorldChunk;
+import com.hypixel.hytale.server.core.universe.world.chunk.section.BlockSection;
+
+import it.unimi.dsi.fastutil.ints.IntLists;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.intThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DungeonBlockScannerTest {
+
+    private static final int DUNGEON_TYPE = 7;
+    private static final int BASE_INDEX = 3;
+    private static final int SECTIONS = ChunkUtil.HEIGHT / ChunkUtil.SIZE;
+
+    private final DungeonBlockScanner scanner = new DungeonBlockScanner();
+    private DungeonBlockTypes types;
+
+    @BeforeEach
+    void setUp() {
+        types = mock(DungeonBlockTypes.class);
+        when(types.getDungeonTypeIds()).thenReturn(IntLists.singleton(DUNGEON_TYPE));
+        when(types.getBaseIndex(anyInt())).thenReturn(DungeonBlockTypes.NOT_DUNGEON_BLOCK);
+        when(types.getBaseIndex(DUNGEON_TYPE)).thenReturn(BASE_INDEX);
+    }
+
+    // callers pass open Y bounds, only the chunk's own rows may be read
+    @Test
+    void clampsOpenYBoundsWithoutSections() {
+        WorldChunk chunk = chunk(0, 0, null);
+        when(chunk.getBlock(anyInt(), anyInt(), anyInt())).thenReturn(DUNGEON_TYPE);
+
+        DungeonBlockScanner.ChunkBlocks blocks = scanner.scanChunk(chunk,
+                0, Integer.MIN_VALUE, 0, 0, Integer.MAX_VALUE, 0, types);
+
+        verify(chunk, never()).getBlock(anyInt(), intThat(y -> y < 0 || y >= ChunkUtil.HEIGHT), anyInt());
+        assertEquals(ChunkUtil.HEIGHT, blocks.size());
+        assertEquals(0, PackedBlockPos.unpackY(blocks.getPosition(0)));
+        assertEquals(ChunkUtil.HEIGHT - 1, PackedBlockPos.unpackY(blocks.getPosition(blocks.size() - 1)));
+        assertEquals(BASE_INDEX, blocks.getBaseIndex(0));
+    }
+
+    @Test
+    void clampsOpenYBoundsToTheChunkSections() {
+        BlockChunk blockChunk = mock(BlockChunk.class);
+        BlockSection top = mock(BlockSection.class);
+        when(top.containsAny(any())).thenReturn(true);
+        when(top.get(anyInt())).thenReturn(DUNGEON_TYPE);
+        when(blockChunk.getSectionAtIndex(SECTIONS - 1)).thenReturn(top);
+        WorldChunk chunk = chunk(0, 0, blockChunk);
+
+        DungeonBlockScanner.ChunkBlocks blocks = scanner.scanChunk(chunk,
+                0, -4096, 0, 0, 4096, 0, types);
+
+        verify(blockChunk, never()).getSectionAtIndex(intThat(i -> i < 0 || i >= SECTIONS));
+        verify(blockChunk).getSectionAtIndex(0);
+        assertEquals(ChunkUtil.SIZE, blocks.size());
+        for (int i = 0; i < blocks.size(); i++) {
+            int y = PackedBlockPos.unpackY(blocks.getPosition(i));
+            assertTrue(y >= ChunkUtil.HEIGHT - ChunkUtil.SIZE && y < ChunkUtil.HEIGHT, "y " + y);
+        }
+    }
+
+    // bounds wider than the chunk are clipped to its columns, negative chunk coordinates included
+    @Test
+    void clipsXAndZToTheChunk() {
+        WorldChunk chunk = chunk(1, -1, null);
+        when(chunk.getBlock(anyInt(), anyInt(), anyInt())).thenReturn(DUNGEON_TYPE);
+
+        DungeonBlockScanner.ChunkBlocks blocks = scanner.scanChunk(chunk,
+                -100, 10, -100, 100, 10, 100, types);
+
+        assertEquals(ChunkUtil.SIZE * ChunkUtil.SIZE, blocks.size());
+        for (int i = 0; i < blocks.size(); i++) {
+            long packed = blocks.getPosition(i);
+            int x = PackedBlockPos.unpackX(packed);
+            int z = PackedBlockPos.unpackZ(packed);
+            assertTrue(x >= ChunkUtil.SIZE && x < 2 * ChunkUtil.SIZE, "x " + x);
+            assertTrue(z >= -ChunkUtil.SIZE && z < 0, "z " + z);
+            assertEquals(10, PackedBlockPos.unpackY(packed));
+        }
+    }
+
+    @Test
+    void boundsOutsideTheChunkFindNothing() {
+        WorldChunk chunk = chunk(0, 0, null);
+        when(chunk.getBlock(anyInt(), anyInt(), anyInt())).thenReturn(DUNGEON_TYPE);
+
+        DungeonBlockScanner.ChunkBlocks blocks = scanner.scanChunk(chunk,
+                ChunkUtil.SIZE, 0, 0, 2 * ChunkUtil.SIZE, 10, 10, types);
+
+        assertEquals(0, blocks.size());
+        verify(chunk, never()).getBlock(anyInt(), anyInt(), anyInt());
+    }
+
+    private static WorldChunk chunk(int chunkX, int chunkZ, BlockChunk blockChunk) {
+        WorldChunk chunk = mock(WorldChunk.class);
+        when(chunk.getX()).thenReturn(chunkX);
+        when(chunk.getZ()).thenReturn(chunkZ);
+        when(chunk.getBlockChunk()).thenReturn(blockChunk);
+        return chunk;
+    }
+}
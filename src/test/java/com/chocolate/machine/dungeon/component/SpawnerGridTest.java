@@ -0,0 +1,181 @@
+package com.chocolate.machine.dungeon.component;
+
+import com.hypixel.hytale.component.ComponentAccessor;
+import com.hypixel.hytale.component.ComponentType;
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.math.vector.Vector3d;
+import com.hypixel.hytale.server.core.modules.entity.component.TransformComponent;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.when;
+
+class SpawnerGridTest {
+
+    private ComponentType<EntityStore, TransformComponent> transformType;
+    private ComponentAccessor<EntityStore> accessor;
+    private MockedStatic<TransformComponent> transformStatics;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        transformType = mock(ComponentType.class);
+        accessor = mock(ComponentAccessor.class);
+        transformStatics = mockStatic(TransformComponent.class);
+        transformStatics.when(TransformComponent::getComponentType).thenReturn(transformType);
+    }
+
+    @AfterEach
+    void tearDown() {
+        transformStatics.close();
+    }
+
+    @Test
+    void collectsOnlySpawnersInsideTheRadius() {
+        List<Ref<EntityStore>> refs = new ObjectArrayList<>();
+        Ref<EntityStore> inside = spawner(refs, 10, 0, 10);
+        Ref<EntityStore> edge = spawner(refs, 30, 0, 0);
+        Ref<EntityStore> outside = spawner(refs, 30, 0, 30);
+        SpawnerGrid grid = build(refs);
+
+        BitSet out = new BitSet();
+        grid.collect(new Vector3d(0, 0, 0), 30, out);
+
+        assertTrue(out.get(grid.getSlot(inside)));
+        assertTrue(out.get(grid.getSlot(edge)));
+        assertFalse(out.get(grid.getSlot(outside)));
+        assertEquals(2, out.cardinality());
+    }
+
+    // the query sphere straddles cell borders, including the ones around zero
+    @Test
+    void collectsAcrossCellBordersAndNegativeCoordinates() {
+        List<Ref<EntityStore>> refs = new ObjectArrayList<>();
+        Ref<EntityStore> west = spawner(refs, -1, 64, 0);
+        Ref<EntityStore> east = spawner(refs, 1, 64, 0);
+        Ref<EntityStore> below = spawner(refs, 0, 49.5, 0);
+        Ref<EntityStore> above = spawner(refs, 0, 50.5, 0);
+        SpawnerGrid grid = build(refs);
+
+        BitSet out = new BitSet();
+        grid.collect(new Vector3d(0, 50, 0), 15, out);
+
+        assertTrue(out.get(grid.getSlot(west)));
+        assertTrue(out.get(grid.getSlot(east)));
+        assertTrue(out.get(grid.getSlot(below)));
+        assertTrue(out.get(grid.getSlot(above)));
+    }
+
+    @Test
+    void matchesABruteForceScan() {
+        Random random = new Random(7L);
+        List<Ref<EntityStore>> refs = new ObjectArrayList<>();
+        List<Vector3d> positions = new ObjectArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Vector3d position = new Vector3d(
+                    random.nextDouble() * 600 - 300, random.nextDouble() * 200, random.nextDouble() * 600 - 300);
+            positions.add(position);
+            spawner(refs, position.getX(), position.getY(), position.getZ());
+        }
+        SpawnerGrid grid = build(refs);
+
+        for (int query = 0; query < 50; query++) {
+            Vector3d center = new Vector3d(
+                    random.nextDouble() * 600 - 300, random.nextDouble() * 200, random.nextDouble() * 600 - 300);
+            double radius = 10 + random.nextDouble() * 140;
+
+            BitSet expected = new BitSet();
+            for (int i = 0; i < positions.size(); i++) {
+                if (center.distanceSquaredTo(positions.get(i)) <= radius * radius) {
+                    expected.set(grid.getSlot(refs.get(i)));
+                }
+            }
+            BitSet actual = new BitSet();
+            grid.collect(center, radius, actual);
+
+            assertEquals(expected, actual);
+        }
+    }
+
+    // slots stay dense, so a skipped spawner leaves no hole in the BitSet
+    @Test
+    void skipsInvalidRefsAndSpawnersWithoutTransform() {
+        List<Ref<EntityStore>> refs = new ObjectArrayList<>();
+        Ref<EntityStore> invalid = spawner(refs, 0, 0, 0);
+        when(invalid.isValid()).thenReturn(false);
+        Ref<EntityStore> noTransform = ref();
+        refs.add(noTransform);
+        Ref<EntityStore> kept = spawner(refs, 5, 0, 0);
+        SpawnerGrid grid = build(refs);
+
+        assertEquals(1, grid.size());
+        assertEquals(-1, grid.getSlot(invalid));
+        assertEquals(-1, grid.getSlot(noTransform));
+        assertEquals(0, grid.getSlot(kept));
+        assertSame(kept, grid.getRef(0));
+
+        BitSet out = new BitSet();
+        grid.collect(new Vector3d(0, 0, 0), 10, out);
+        assertEquals(1, out.cardinality());
+        assertTrue(out.get(0));
+    }
+
+    @Test
+    void rebuildReplacesThePreviousSpawners() {
+        List<Ref<EntityStore>> refs = new ObjectArrayList<>();
+        Ref<EntityStore> old = spawner(refs, 0, 0, 0);
+        SpawnerGrid grid = build(refs);
+        grid.invalidate();
+        assertTrue(grid.isDirty());
+
+        refs.clear();
+        Ref<EntityStore> replacement = spawner(refs, 200, 0, 0);
+        grid.build(refs, accessor);
+
+        assertFalse(grid.isDirty());
+        assertEquals(-1, grid.getSlot(old));
+        BitSet out = new BitSet();
+        grid.collect(new Vector3d(0, 0, 0), 10, out);
+        assertTrue(out.isEmpty());
+        grid.collect(new Vector3d(200, 0, 0), 10, out);
+        assertTrue(out.get(grid.getSlot(replacement)));
+    }
+
+    private SpawnerGrid build(List<Ref<EntityStore>> refs) {
+        SpawnerGrid grid = new SpawnerGrid();
+        grid.build(refs, accessor);
+        return grid;
+    }
+
+    private Ref<EntityStore> spawner(List<Ref<EntityStore>> refs, double x, double y, double z) {
+        Ref<EntityStore> ref = ref();
+        TransformComponent transform = mock(TransformComponent.class);
+        when(transform.getPosition()).thenReturn(new Vector3d(x, y, z));
+        when(accessor.getComponent(ref, transformType)).thenReturn(transform);
+        refs.add(ref);
+        return ref;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Ref<EntityStore> ref() {
+        Ref<EntityStore> ref = mock(Ref.class);
+        when(ref.isValid()).thenReturn(true);
+        return ref;
+    }
+}
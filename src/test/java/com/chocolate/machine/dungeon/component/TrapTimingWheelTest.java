@@ -0,0 +1,172 @@
+package com.chocolate.machine.dungeon.component;
+
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class TrapTimingWheelTest {
+
+    private TrapTimingWheel wheel;
+    private List<Ref<EntityStore>> fired;
+
+    @BeforeEach
+    void setUp() {
+        wheel = new TrapTimingWheel();
+        fired = new ObjectArrayList<>();
+    }
+
+    @Test
+    void firesOnceTheDelayHasPassed() {
+        Ref<EntityStore> trap = ref();
+        schedule(trap, 0.2f);
+        assertTrue(wheel.isScheduled(trap));
+
+        wheel.advance(0.1f, fired);
+        assertTrue(fired.isEmpty());
+
+        wheel.advance(0.15f, fired);
+        assertEquals(List.of(trap), fired);
+        assertFalse(wheel.isScheduled(trap));
+    }
+
+    @Test
+    void zeroDelayRunsAgainOnTheNextTick() {
+        Ref<EntityStore> trap = ref();
+        schedule(trap, 0f);
+
+        wheel.advance(0.06f, fired);
+        assertEquals(List.of(trap), fired);
+    }
+
+    @Test
+    void negativeDelayParks() {
+        Ref<EntityStore> trap = ref();
+        schedule(trap, -1f);
+        assertTrue(wheel.isParked(trap));
+
+        wheel.advance(60f, fired);
+        assertTrue(fired.isEmpty());
+        assertTrue(wheel.isParked(trap));
+    }
+
+    // 10s lands on the second level and has to cascade down before it fires
+    @Test
+    void cascadesFromTheSecondLevel() {
+        assertFiresAfter(10f);
+    }
+
+    // 1000s only fits the third level
+    @Test
+    void cascadesFromTheThirdLevel() {
+        assertFiresAfter(1000f);
+    }
+
+    // beyond the wheel's span the entry is re-cascaded until its deadline is in reach
+    @Test
+    void delaysLongerThanTheWheelStillFire() {
+        assertFiresAfter(4 * 3600f);
+    }
+
+    @Test
+    void firesInDeadlineOrderAcrossTicks() {
+        Ref<EntityStore> late = ref();
+        Ref<EntityStore> early = ref();
+        wheel.markRan(late);
+        wheel.markRan(early);
+        wheel.rescheduleRan(0, 1f);
+        wheel.rescheduleRan(1, 0.5f);
+        wheel.clearRan();
+
+        wheel.advance(0.75f, fired);
+        assertEquals(List.of(early), fired);
+
+        wheel.advance(0.5f, fired);
+        assertEquals(List.of(early, late), fired);
+    }
+
+    @Test
+    void forgottenTrapsNeverFire() {
+        Ref<EntityStore> trap = ref();
+        schedule(trap, 0.2f);
+        wheel.forget(trap);
+
+        wheel.advance(1f, fired);
+        assertTrue(fired.isEmpty());
+        assertFalse(wheel.isScheduled(trap));
+    }
+
+    @Test
+    void clearDropsEverything() {
+        Ref<EntityStore> scheduled = ref();
+        Ref<EntityStore> ran = ref();
+        schedule(scheduled, 0.2f);
+        wheel.markRan(ran);
+
+        wheel.clear();
+
+        assertEquals(0, wheel.getRanCount());
+        assertFalse(wheel.isScheduled(scheduled));
+        wheel.advance(1f, fired);
+        assertTrue(fired.isEmpty());
+    }
+
+    @Test
+    void markRanCountsATrapOncePerTick() {
+        Ref<EntityStore> trap = ref();
+        wheel.markRan(trap);
+        wheel.markRan(trap);
+
+        assertEquals(1, wheel.getRanCount());
+        assertSame(trap, wheel.getRan(0));
+        assertTrue(wheel.hasRun(trap));
+
+        wheel.clearRan();
+        assertEquals(0, wheel.getRanCount());
+        assertFalse(wheel.hasRun(trap));
+    }
+
+    @Test
+    void elapsedCountsFromTheLastRun() {
+        Ref<EntityStore> trap = ref();
+        wheel.advance(3f, fired);
+        schedule(trap, 1f);
+
+        wheel.advance(1.5f, fired);
+        assertEquals(1.5f, wheel.getElapsed(trap), 1e-4f);
+        assertEquals(0f, wheel.getElapsed(ref()));
+    }
+
+    private void assertFiresAfter(float delay) {
+        Ref<EntityStore> trap = ref();
+        schedule(trap, delay);
+
+        wheel.advance(delay - 0.5f, fired);
+        assertTrue(fired.isEmpty());
+
+        wheel.advance(1f, fired);
+        assertEquals(List.of(trap), fired);
+    }
+
+    private void schedule(Ref<EntityStore> trap, float delay) {
+        wheel.markRan(trap);
+        wheel.rescheduleRan(wheel.getRanCount() - 1, delay);
+        wheel.clearRan();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Ref<EntityStore> ref() {
+        return mock(Ref.class);
+    }
+}
@@ -0,0 +1,86 @@
+package com.chocolate.machine.utils;
+
+import com.hypixel.hytale.component.ComponentType;
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class FloodFillGroupsTest {
+
+    @Test
+    void rejectsAnEmptyTypeList() {
+        assertThrows(IllegalArgumentException.class, () -> new FloodFillGroups(List.of()));
+    }
+
+    // a candidate's types are tracked as bits of an int mask
+    @Test
+    void acceptsAtMostThirtyTwoTypes() {
+        assertEquals(32, new FloodFillGroups(types(32)).getTypeCount());
+        assertThrows(IllegalArgumentException.class, () -> new FloodFillGroups(types(33)));
+    }
+
+    @Test
+    void groupsFollowRequestOrder() {
+        List<ComponentType<EntityStore, ?>> types = types(3);
+        FloodFillGroups groups = new FloodFillGroups(types);
+
+        Ref<EntityStore> ref = ref();
+        groups.get(1).add(ref);
+
+        assertSame(groups.get(1), groups.get(types.get(1)));
+        assertEquals(List.of(ref), groups.get(types.get(1)));
+        assertTrue(groups.get(types.get(0)).isEmpty());
+        assertTrue(groups.get(types.get(2)).isEmpty());
+    }
+
+    @Test
+    void rejectsATypeThatWasNotRequested() {
+        FloodFillGroups groups = new FloodFillGroups(types(2));
+        assertThrows(IllegalArgumentException.class, () -> groups.get(type()));
+    }
+
+    // lists already handed out stay valid, they are emptied rather than replaced
+    @Test
+    void clearEmptiesEveryGroupInPlace() {
+        FloodFillGroups groups = new FloodFillGroups(types(2));
+        ObjectArrayList<Ref<EntityStore>> first = groups.get(0);
+        first.add(ref());
+        groups.get(1).add(ref());
+        groups.get(1).add(ref());
+
+        groups.clear();
+
+        assertSame(first, groups.get(0));
+        assertTrue(groups.get(0).isEmpty());
+        assertTrue(groups.get(1).isEmpty());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ComponentType<EntityStore, ?> type() {
+        return mock(ComponentType.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Ref<EntityStore> ref() {
+        return mock(Ref.class);
+    }
+
+    private static List<ComponentType<EntityStore, ?>> types(int count) {
+        List<ComponentType<EntityStore, ?>> types = new ObjectArrayList<>();
+        for (int i = 0; i < count; i++) {
+            types.add(type());
+        }
+        return types;
+    }
+}
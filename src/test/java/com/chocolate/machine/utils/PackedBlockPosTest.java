@@ -0,0 +1,62 @@
+package com.chocolate.machine.utils;
+
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PackedBlockPosTest {
+
+    private static final int MIN_XZ = -(1 << 25);
+    private static final int MAX_XZ = (1 << 25) - 1;
+    private static final int MIN_Y = -(1 << 11);
+    private static final int MAX_Y = (1 << 11) - 1;
+
+    @Test
+    void roundTripsTheEdgesOfEachField() {
+        int[] xz = {MIN_XZ, MIN_XZ + 1, -1, 0, 1, MAX_XZ - 1, MAX_XZ};
+        int[] ys = {MIN_Y, -1, 0, 1, 255, 319, MAX_Y};
+        for (int x : xz) {
+            for (int y : ys) {
+                for (int z : xz) {
+                    assertRoundTrip(x, y, z);
+                }
+            }
+        }
+    }
+
+    @Test
+    void roundTripsRandomPositions() {
+        Random random = new Random(42L);
+        for (int i = 0; i < 100_000; i++) {
+            int x = MIN_XZ + random.nextInt(MAX_XZ - MIN_XZ + 1);
+            int y = MIN_Y + random.nextInt(MAX_Y - MIN_Y + 1);
+            int z = MIN_XZ + random.nextInt(MAX_XZ - MIN_XZ + 1);
+            assertRoundTrip(x, y, z);
+        }
+    }
+
+    // negative fields must not bleed into their neighbours
+    @Test
+    void neighboursAroundTheOriginPackDistinctly() {
+        LongOpenHashSet seen = new LongOpenHashSet();
+        for (int x = -2; x <= 2; x++) {
+            for (int y = -2; y <= 2; y++) {
+                for (int z = -2; z <= 2; z++) {
+                    assertTrue(seen.add(PackedBlockPos.pack(x, y, z)), "collision at " + x + "," + y + "," + z);
+                }
+            }
+        }
+    }
+
+    private static void assertRoundTrip(int x, int y, int z) {
+        long packed = PackedBlockPos.pack(x, y, z);
+        assertEquals(x, PackedBlockPos.unpackX(packed));
+        assertEquals(y, PackedBlockPos.unpackY(packed));
+        assertEquals(z, PackedBlockPos.unpackZ(packed));
+    }
+}